@@ -0,0 +1,38 @@
+package com.interzonedev.httpagent;
+
+import java.util.concurrent.Future;
+
+import com.interzonedev.httpcore.HttpException;
+import com.interzonedev.httpcore.Request;
+import com.interzonedev.httpcore.Response;
+
+/**
+ * Base class for the {@link RequestService} implementations in this package, all of which do their work in the
+ * overloads that take the most arguments. The shorter overloads pass the defaults on to those.
+ */
+abstract class AbstractRequestService implements RequestService {
+
+    @Override
+    public Response doSynchronousRequest(Request request) throws HttpException {
+        return doSynchronousRequest(request, null);
+    }
+
+    @Override
+    public abstract Response doSynchronousRequest(Request request, ResponseSizeLimits responseSizeLimits)
+            throws HttpException;
+
+    @Override
+    public Future<Response> doRequest(Request request) throws HttpException {
+        return doRequest(request, null);
+    }
+
+    @Override
+    public Future<Response> doRequest(Request request, ResponseSizeLimits responseSizeLimits) throws HttpException {
+        return doRequest(request, responseSizeLimits, null);
+    }
+
+    @Override
+    public abstract Future<Response> doRequest(Request request, ResponseSizeLimits responseSizeLimits,
+            ResponseCallback responseCallback) throws HttpException;
+
+}
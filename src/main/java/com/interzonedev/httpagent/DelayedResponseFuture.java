@@ -0,0 +1,127 @@
+package com.interzonedev.httpagent;
+
+import com.interzonedev.httpcore.Response;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link Future} returned for a request whose dispatch to the underlying {@link RequestService} has been scheduled on a
+ * timer. No thread is held while the request waits for its slot; callers of {@link #get()} wait first for the dispatch
+ * and then for the {@link Future} returned by the underlying {@link RequestService}.
+ */
+class DelayedResponseFuture implements Future<Response> {
+
+    private final CountDownLatch dispatchLatch = new CountDownLatch(1);
+
+    private final ResponseCallback responseCallback;
+
+    private volatile ScheduledFuture<?> scheduledDispatch;
+
+    private volatile Future<Response> responseFuture;
+
+    private volatile Throwable dispatchError;
+
+    private volatile boolean cancelled = false;
+
+    /**
+     * Creates a {@link DelayedResponseFuture}.
+     *
+     * @param responseCallback The {@link ResponseCallback} to notify if the request is cancelled before or fails
+     *            during its dispatch. Notification of the outcome of a dispatched request is left to the underlying
+     *            {@link RequestService}. May be null.
+     */
+    DelayedResponseFuture(ResponseCallback responseCallback) {
+        this.responseCallback = responseCallback;
+    }
+
+    void setScheduledDispatch(ScheduledFuture<?> scheduledDispatch) {
+        this.scheduledDispatch = scheduledDispatch;
+    }
+
+    void dispatched(Future<Response> responseFuture) {
+        this.responseFuture = responseFuture;
+        dispatchLatch.countDown();
+    }
+
+    void dispatchFailed(Throwable dispatchError) {
+        this.dispatchError = dispatchError;
+        dispatchLatch.countDown();
+        ResponseCallbacks.failed(responseCallback, dispatchError);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        ScheduledFuture<?> currentScheduledDispatch = scheduledDispatch;
+        if ((null != currentScheduledDispatch) && currentScheduledDispatch.cancel(false)) {
+            cancelled = true;
+            dispatchLatch.countDown();
+            ResponseCallbacks.failed(responseCallback, new CancellationException(
+                    "Rate limited request cancelled before it was sent"));
+            return true;
+        }
+
+        Future<Response> currentResponseFuture = responseFuture;
+        if (null != currentResponseFuture) {
+            return currentResponseFuture.cancel(mayInterruptIfRunning);
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        if (cancelled) {
+            return true;
+        }
+
+        Future<Response> currentResponseFuture = responseFuture;
+        return (null != currentResponseFuture) && currentResponseFuture.isCancelled();
+    }
+
+    @Override
+    public boolean isDone() {
+        if (cancelled || (null != dispatchError)) {
+            return true;
+        }
+
+        Future<Response> currentResponseFuture = responseFuture;
+        return (null != currentResponseFuture) && currentResponseFuture.isDone();
+    }
+
+    @Override
+    public Response get() throws InterruptedException, ExecutionException {
+        dispatchLatch.await();
+        return getDispatchedResponseFuture().get();
+    }
+
+    @Override
+    public Response get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+            TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        if (!dispatchLatch.await(timeout, unit)) {
+            throw new TimeoutException("Timed out waiting for rate limited request to be sent");
+        }
+
+        return getDispatchedResponseFuture().get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    private Future<Response> getDispatchedResponseFuture() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException("Rate limited request cancelled before it was sent");
+        }
+
+        if (null != dispatchError) {
+            throw new ExecutionException(dispatchError);
+        }
+
+        return responseFuture;
+    }
+
+}
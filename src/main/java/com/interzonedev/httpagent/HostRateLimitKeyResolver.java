@@ -0,0 +1,31 @@
+package com.interzonedev.httpagent;
+
+import com.interzonedev.httpcore.Request;
+
+import java.net.URI;
+import java.util.Locale;
+
+/**
+ * {@link RateLimitKeyResolver} that counts requests against the lower cased host name of the request url.
+ */
+public class HostRateLimitKeyResolver implements RateLimitKeyResolver {
+
+    @Override
+    public String getKey(Request request) {
+        String url = request.getUrl();
+
+        String host = null;
+        try {
+            host = URI.create(url).getHost();
+        } catch (IllegalArgumentException iae) {
+            throw new IllegalArgumentException("Unable to determine host of url: " + url, iae);
+        }
+
+        if (null == host) {
+            throw new IllegalArgumentException("Unable to determine host of url: " + url);
+        }
+
+        return host.toLowerCase(Locale.ROOT);
+    }
+
+}
@@ -9,6 +9,7 @@ import org.apache.http.Header;
 import org.apache.http.HeaderElement;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.MessageConstraintException;
 import org.apache.http.NameValuePair;
 import org.apache.http.ParseException;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
@@ -22,10 +23,15 @@ import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpTrace;
 import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.MessageConstraints;
+import org.apache.http.entity.ContentType;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.util.ByteArrayBuffer;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,7 +40,9 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.servlet.http.Cookie;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -43,14 +51,20 @@ import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
-public class HttpComponentsRequestService implements RequestService {
+public class HttpComponentsRequestService extends AbstractRequestService implements PooledRequestService {
 
     private static final Logger log = LoggerFactory.getLogger(HttpComponentsRequestService.class);
 
+    /**
+     * The smallest possible header line, a one character name, the colon and CRLF.
+     */
+    private static final long MIN_HEADER_LINE_SIZE = 4L;
+
     private boolean initialized = false;
 
     private int maxTotalHttpConnections;
@@ -65,12 +79,48 @@ public class HttpComponentsRequestService implements RequestService {
 
     private ExecutorService threadPoolExecutor;
 
+    private ResponseSizeLimits responseSizeLimits;
+
+    private ResponseBufferPool responseBufferPool;
+
+    private final RequestServiceMetrics metrics = new RequestServiceMetrics();
+
     public HttpComponentsRequestService(int maxTotalHttpConnections, int defaultMaxHttpConnectionsPerRoute,
             int coreThreadPoolSize, int maximumThreadPoolSize) {
+        this(maxTotalHttpConnections, defaultMaxHttpConnectionsPerRoute, coreThreadPoolSize, maximumThreadPoolSize,
+                ResponseSizeLimits.UNLIMITED);
+    }
+
+    public HttpComponentsRequestService(int maxTotalHttpConnections, int defaultMaxHttpConnectionsPerRoute,
+            int coreThreadPoolSize, int maximumThreadPoolSize, ResponseSizeLimits responseSizeLimits) {
+        this(maxTotalHttpConnections, defaultMaxHttpConnectionsPerRoute, coreThreadPoolSize, maximumThreadPoolSize,
+                responseSizeLimits, null);
+    }
+
+    /**
+     * Creates an {@link HttpComponentsRequestService}.
+     * 
+     * @param maxTotalHttpConnections The maximum number of pooled HTTP connections.
+     * @param defaultMaxHttpConnectionsPerRoute The maximum number of pooled HTTP connections per route.
+     * @param coreThreadPoolSize The core size of the thread pool that performs asynchronous requests.
+     * @param maximumThreadPoolSize The maximum size of the thread pool that performs asynchronous requests.
+     * @param responseSizeLimits The default {@link ResponseSizeLimits} for all requests. The header limit stops the
+     *            response parser as soon as a single header line, or the number of header lines, could not fit within
+     *            it; the total header size is checked once the headers have been parsed. Header limits passed with an
+     *            individual request are only checked once the headers have been parsed.
+     * @param responseBufferPool The {@link ResponseBufferPool} into which response bodies are read. May be null, in
+     *            which case response bodies are read into freshly allocated buffers and the
+     *            {@link PooledRequestService} methods are unavailable.
+     */
+    public HttpComponentsRequestService(int maxTotalHttpConnections, int defaultMaxHttpConnectionsPerRoute,
+            int coreThreadPoolSize, int maximumThreadPoolSize, ResponseSizeLimits responseSizeLimits,
+            ResponseBufferPool responseBufferPool) {
         this.maxTotalHttpConnections = maxTotalHttpConnections;
         this.defaultMaxHttpConnectionsPerRoute = defaultMaxHttpConnectionsPerRoute;
         this.coreThreadPoolSize = coreThreadPoolSize;
         this.maximumThreadPoolSize = maximumThreadPoolSize;
+        this.responseSizeLimits = responseSizeLimits;
+        this.responseBufferPool = responseBufferPool;
     }
 
     @PostConstruct
@@ -79,6 +129,20 @@ public class HttpComponentsRequestService implements RequestService {
         httpClientConnectionManager.setMaxTotal(maxTotalHttpConnections);
         httpClientConnectionManager.setDefaultMaxPerRoute(defaultMaxHttpConnectionsPerRoute);
 
+        // Stop the parser on an oversized header line, or on more header lines than could fit in the limit, before
+        // they are buffered. The parser has no total size constraint, so the exact total header size, and any per
+        // request header limit, is checked once the headers have been parsed.
+        if (responseSizeLimits.isHeaderSizeLimited()) {
+            long maxHeaderSize = responseSizeLimits.getMaxHeaderSize();
+            int maxLineLength = (int) Math.min(maxHeaderSize, Integer.MAX_VALUE);
+            int maxHeaderCount = (int) Math.min(Math.max(maxHeaderSize / MIN_HEADER_LINE_SIZE, 1L),
+                    Integer.MAX_VALUE);
+            MessageConstraints messageConstraints = MessageConstraints.custom().setMaxLineLength(maxLineLength)
+                    .setMaxHeaderCount(maxHeaderCount).build();
+            httpClientConnectionManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+                    .setMessageConstraints(messageConstraints).build());
+        }
+
         HttpClientBuilder httpClientBuilder = HttpClientBuilder.create().setConnectionManager(
                 httpClientConnectionManager);
 
@@ -105,15 +169,27 @@ public class HttpComponentsRequestService implements RequestService {
         }
     }
 
-    private class CallableRequest implements Callable<Response> {
+    /**
+     * Gets the {@link RequestServiceMetrics} maintained by this service.
+     * 
+     * @return Returns the {@link RequestServiceMetrics} maintained by this service.
+     */
+    public RequestServiceMetrics getMetrics() {
+        return metrics;
+    }
+
+    private abstract class CallableRequest<T> implements Callable<T> {
         private final Request request;
 
-        private CallableRequest(Request request) {
+        private final ResponseSizeLimits responseSizeLimits;
+
+        private CallableRequest(Request request, ResponseSizeLimits responseSizeLimits) {
             this.request = request;
+            this.responseSizeLimits = responseSizeLimits;
         }
 
         @Override
-        public Response call() throws Exception {
+        public T call() throws Exception {
             try {
                 log.debug("call: Start request = " + request);
 
@@ -129,12 +205,24 @@ public class HttpComponentsRequestService implements RequestService {
                 log.debug("call: Sending HTTP request");
 
                 // Send the HTTP request.
-                HttpResponse httpResponse = httpClient.execute(httpRequestBase);
+                HttpResponse httpResponse = null;
+                try {
+                    httpResponse = httpClient.execute(httpRequestBase);
+                } catch (IOException ioe) {
+                    if (isMessageConstraintViolation(ioe)) {
+                        throw responseSizeLimitExceeded("Response header line length or count exceeded maximum",
+                                ResponseSizeLimitExceededException.Part.HEADERS,
+                                HttpComponentsRequestService.this.responseSizeLimits.getMaxHeaderSize(), -1L, ioe);
+                    }
+                    throw ioe;
+                }
 
                 log.debug("call: Received HTTP response");
 
+                checkResponseHeaderSize(httpRequestBase, httpResponse, responseSizeLimits);
+
                 // Assemble the response value object from the HTTP response.
-                Response response = transformResponse(request, httpResponse);
+                T response = assembleResponse(request, httpRequestBase, httpResponse, responseSizeLimits);
 
                 log.debug("call: Assembled response = " + response);
 
@@ -143,18 +231,66 @@ public class HttpComponentsRequestService implements RequestService {
                 log.debug("call: End");
             }
         }
+
+        protected abstract T assembleResponse(Request request, HttpRequestBase httpRequestBase,
+                HttpResponse httpResponse, ResponseSizeLimits responseSizeLimits) throws Exception;
+    }
+
+    private class ResponseCallableRequest extends CallableRequest<Response> {
+        private ResponseCallableRequest(Request request, ResponseSizeLimits responseSizeLimits) {
+            super(request, responseSizeLimits);
+        }
+
+        @Override
+        protected Response assembleResponse(Request request, HttpRequestBase httpRequestBase,
+                HttpResponse httpResponse, ResponseSizeLimits responseSizeLimits) throws Exception {
+            return transformResponse(request, httpRequestBase, httpResponse, responseSizeLimits);
+        }
+    }
+
+    /**
+     * {@link FutureTask} that notifies a {@link ResponseCallback} once the request completes, fails or is cancelled.
+     */
+    private static class CallbackFutureTask extends FutureTask<Response> {
+        private final ResponseCallback responseCallback;
+
+        private CallbackFutureTask(Callable<Response> callable, ResponseCallback responseCallback) {
+            super(callable);
+            this.responseCallback = responseCallback;
+        }
+
+        @Override
+        protected void done() {
+            ResponseCallbacks.notifyCompleted(this, responseCallback);
+        }
+    }
+
+    private class PooledResponseCallableRequest extends CallableRequest<PooledResponse> {
+        private PooledResponseCallableRequest(Request request, ResponseSizeLimits responseSizeLimits) {
+            super(request, responseSizeLimits);
+        }
+
+        @Override
+        protected PooledResponse assembleResponse(Request request, HttpRequestBase httpRequestBase,
+                HttpResponse httpResponse, ResponseSizeLimits responseSizeLimits) throws Exception {
+            return transformPooledResponse(request, httpRequestBase, httpResponse, responseSizeLimits);
+        }
     }
 
     @Override
-    public Response doSynchronousRequest(Request request) throws HttpException {
+    public Response doSynchronousRequest(Request request, ResponseSizeLimits responseSizeLimits)
+            throws HttpException {
         try {
             log.debug("doSynchronousRequest: Start - request = " + request);
 
-            CallableRequest callableRequest = new CallableRequest(request);
+            ResponseCallableRequest callableRequest = new ResponseCallableRequest(request,
+                    getResponseSizeLimits(responseSizeLimits));
             Response response = callableRequest.call();
             log.debug("doSynchronousRequest: Returning response = " + response);
 
             return response;
+        } catch (ResponseSizeLimitExceededException rslee) {
+            throw rslee;
         } catch (Exception e) {
             String errorMessage = "Error performing synchronous HTTP request";
             log.error("doSynchronousRequest: " + errorMessage, e);
@@ -165,12 +301,15 @@ public class HttpComponentsRequestService implements RequestService {
     }
 
     @Override
-    public Future<Response> doRequest(Request request) throws HttpException {
+    public Future<Response> doRequest(Request request, ResponseSizeLimits responseSizeLimits,
+            ResponseCallback responseCallback) throws HttpException {
         try {
             log.debug("doRequest: Starting request - " + request);
 
-            CallableRequest callableRequest = new CallableRequest(request);
-            Future<Response> responseFuture = threadPoolExecutor.submit(callableRequest);
+            ResponseCallableRequest callableRequest = new ResponseCallableRequest(request,
+                    getResponseSizeLimits(responseSizeLimits));
+            CallbackFutureTask responseFuture = new CallbackFutureTask(callableRequest, responseCallback);
+            threadPoolExecutor.execute(responseFuture);
             log.debug("doRequest: Got response future");
 
             return responseFuture;
@@ -183,6 +322,74 @@ public class HttpComponentsRequestService implements RequestService {
         }
     }
 
+    @Override
+    public PooledResponse doSynchronousPooledRequest(Request request, ResponseSizeLimits responseSizeLimits)
+            throws HttpException {
+        try {
+            log.debug("doSynchronousPooledRequest: Start - request = " + request);
+
+            checkResponseBufferPool();
+
+            PooledResponseCallableRequest callableRequest = new PooledResponseCallableRequest(request,
+                    getResponseSizeLimits(responseSizeLimits));
+            PooledResponse pooledResponse = callableRequest.call();
+            log.debug("doSynchronousPooledRequest: Returning response = " + pooledResponse.getResponse());
+
+            return pooledResponse;
+        } catch (ResponseSizeLimitExceededException rslee) {
+            throw rslee;
+        } catch (Exception e) {
+            String errorMessage = "Error performing synchronous pooled HTTP request";
+            log.error("doSynchronousPooledRequest: " + errorMessage, e);
+            throw new HttpException(errorMessage, e);
+        } finally {
+            log.debug("doSynchronousPooledRequest: End");
+        }
+    }
+
+    @Override
+    public Future<PooledResponse> doPooledRequest(Request request, ResponseSizeLimits responseSizeLimits)
+            throws HttpException {
+        try {
+            log.debug("doPooledRequest: Starting request - " + request);
+
+            checkResponseBufferPool();
+
+            PooledResponseCallableRequest callableRequest = new PooledResponseCallableRequest(request,
+                    getResponseSizeLimits(responseSizeLimits));
+            Future<PooledResponse> responseFuture = threadPoolExecutor.submit(callableRequest);
+            log.debug("doPooledRequest: Got response future");
+
+            return responseFuture;
+        } catch (Exception e) {
+            String errorMessage = "Error performing asynchronous pooled HTTP request";
+            log.error("doPooledRequest: " + errorMessage, e);
+            throw new HttpException(errorMessage, e);
+        } finally {
+            log.debug("doPooledRequest: End");
+        }
+    }
+
+    private void checkResponseBufferPool() {
+        if (null == responseBufferPool) {
+            String errorMessage = "HttpComponentsRequestService has no ResponseBufferPool configured";
+            log.error(errorMessage);
+            throw new IllegalStateException(errorMessage);
+        }
+    }
+
+    /**
+     * Gets the {@link ResponseSizeLimits} that apply to a request.
+     * 
+     * @param requestResponseSizeLimits The {@link ResponseSizeLimits} specified for the request, if any.
+     * 
+     * @return Returns the specified {@link ResponseSizeLimits} if not null, otherwise the default
+     *         {@link ResponseSizeLimits} of this service.
+     */
+    private ResponseSizeLimits getResponseSizeLimits(ResponseSizeLimits requestResponseSizeLimits) {
+        return (null != requestResponseSizeLimits) ? requestResponseSizeLimits : responseSizeLimits;
+    }
+
     /**
      * Assemble the {@link HttpRequestBase} instance that represents the HTTP request from the {@link Request} value
      * object.
@@ -345,19 +552,151 @@ public class HttpComponentsRequestService implements RequestService {
         }
     }
 
+    /**
+     * Aborts the specified {@link HttpRequestBase} if the status line and headers of the specified
+     * {@link HttpResponse} exceed the maximum header size in the specified {@link ResponseSizeLimits}.
+     * 
+     * @param httpRequestBase The {@link HttpRequestBase} that represents the HTTP request.
+     * @param httpResponse The {@link HttpResponse} that represents the response whose headers to check.
+     * @param responseSizeLimits The {@link ResponseSizeLimits} that apply to the response.
+     * 
+     * @throws ResponseSizeLimitExceededException Thrown if the headers exceed the maximum header size.
+     */
+    private void checkResponseHeaderSize(HttpRequestBase httpRequestBase, HttpResponse httpResponse,
+            ResponseSizeLimits responseSizeLimits) throws ResponseSizeLimitExceededException {
+        if (!responseSizeLimits.isHeaderSizeLimited()) {
+            return;
+        }
+
+        // Headers are ISO-8859-1 on the wire, so characters and bytes coincide. Each line ends with CRLF.
+        long headerSize = httpResponse.getStatusLine().toString().length() + 2;
+        for (Header header : httpResponse.getAllHeaders()) {
+            headerSize += header.getName().length() + 2 + header.getValue().length() + 2;
+        }
+
+        long maxHeaderSize = responseSizeLimits.getMaxHeaderSize();
+        if (headerSize > maxHeaderSize) {
+            httpRequestBase.abort();
+            throw responseSizeLimitExceeded("Response headers exceeded maximum size",
+                    ResponseSizeLimitExceededException.Part.HEADERS, maxHeaderSize, headerSize, null);
+        }
+    }
+
+    /**
+     * Determines whether the specified exception, or one of its causes, is a {@link MessageConstraintException}
+     * thrown by the response parser.
+     * 
+     * @param t The exception thrown when sending the HTTP request.
+     * 
+     * @return Returns true if the specified exception was caused by a {@link MessageConstraintException}.
+     */
+    private boolean isMessageConstraintViolation(Throwable t) {
+        for (Throwable cause = t; null != cause; cause = cause.getCause()) {
+            if (cause instanceof MessageConstraintException) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Creates a {@link ResponseSizeLimitExceededException} and counts it in the {@link RequestServiceMetrics} of this
+     * service.
+     * 
+     * @param message The message of the exception.
+     * @param part The part of the response that crossed its limit.
+     * @param limit The limit in bytes that was crossed.
+     * @param size The size in bytes declared or read when the response was aborted, or -1 if not known.
+     * @param cause The underlying exception, if any.
+     * 
+     * @return Returns the {@link ResponseSizeLimitExceededException} to throw.
+     */
+    private ResponseSizeLimitExceededException responseSizeLimitExceeded(String message,
+            ResponseSizeLimitExceededException.Part part, long limit, long size, Throwable cause) {
+        String errorMessage = message + " of " + limit + " bytes";
+        log.warn("responseSizeLimitExceeded: " + errorMessage);
+
+        ResponseSizeLimitExceededException exception = new ResponseSizeLimitExceededException(errorMessage, part,
+                limit, size);
+        if (null != cause) {
+            exception.initCause(cause);
+        }
+
+        metrics.responseSizeLimitExceeded(exception);
+
+        return exception;
+    }
+
     /**
      * Assembles a {@link Response} value object from the specified {@link HttpResponse}.
      * 
      * @param request The {@link Request} value object that represents the originiating HTTP request.
+     * @param httpRequestBase The {@link HttpRequestBase} that represents the HTTP request, aborted if the response body
+     *            crosses its limit.
      * @param httpResponse The {@link HttpResponse} that represents the response to transform into a {@link Response}.
+     * @param responseSizeLimits The {@link ResponseSizeLimits} that apply to the response.
      * 
      * @return Returns a {@link Response} value object assembled from the components of the specified
      *         {@link HttpResponse}.
      * 
      * @throws ParseException Thrown if there was an error turning the response body into a string.
      * @throws IOException Thrown if there was an error turning the response body into a string.
+     * @throws ResponseSizeLimitExceededException Thrown if the response body crosses its limit.
+     */
+    private Response transformResponse(Request request, HttpRequestBase httpRequestBase, HttpResponse httpResponse,
+            ResponseSizeLimits responseSizeLimits) throws ParseException, IOException,
+            ResponseSizeLimitExceededException {
+        String responseContent = getResponseContent(httpRequestBase, httpResponse.getEntity(), responseSizeLimits);
+
+        return transformResponse(request, httpResponse, responseContent);
+    }
+
+    /**
+     * Assembles a {@link PooledResponse} from the specified {@link HttpResponse}, reading the response body into a
+     * buffer from the {@link ResponseBufferPool}.
+     * 
+     * @param request The {@link Request} value object that represents the originiating HTTP request.
+     * @param httpRequestBase The {@link HttpRequestBase} that represents the HTTP request, aborted if the response body
+     *            crosses its limit.
+     * @param httpResponse The {@link HttpResponse} that represents the response to transform into a
+     *            {@link PooledResponse}.
+     * @param responseSizeLimits The {@link ResponseSizeLimits} that apply to the response.
+     * 
+     * @return Returns a {@link PooledResponse} assembled from the components of the specified {@link HttpResponse}.
+     * 
+     * @throws ParseException Thrown if the content type of the response cannot be parsed.
+     * @throws IOException Thrown if there was an error reading the response body.
+     * @throws ResponseSizeLimitExceededException Thrown if the response body crosses its limit.
+     */
+    private PooledResponse transformPooledResponse(Request request, HttpRequestBase httpRequestBase,
+            HttpResponse httpResponse, ResponseSizeLimits responseSizeLimits) throws ParseException, IOException,
+            ResponseSizeLimitExceededException {
+        HttpEntity responseEntity = httpResponse.getEntity();
+
+        Charset charset = getContentCharset(responseEntity);
+
+        PooledBuffer body = readPooledResponseBody(httpRequestBase, responseEntity, responseSizeLimits);
+        try {
+            Response response = transformResponse(request, httpResponse, null);
+            return new PooledResponse(response, body, charset);
+        } catch (RuntimeException re) {
+            body.close();
+            throw re;
+        }
+    }
+
+    /**
+     * Assembles a {@link Response} value object from the specified {@link HttpResponse} and response content.
+     * 
+     * @param request The {@link Request} value object that represents the originiating HTTP request.
+     * @param httpResponse The {@link HttpResponse} that represents the response to transform into a {@link Response}.
+     * @param responseContent The response body already read from the {@link HttpResponse}, if any.
+     * 
+     * @return Returns a {@link Response} value object assembled from the components of the specified
+     *         {@link HttpResponse}.
      */
-    private Response transformResponse(Request request, HttpResponse httpResponse) throws ParseException, IOException {
+    private Response transformResponse(Request request, HttpResponse httpResponse, String responseContent) {
         HttpEntity responseEntity = httpResponse.getEntity();
 
         int statusCode = httpResponse.getStatusLine().getStatusCode();
@@ -374,8 +713,6 @@ public class HttpComponentsRequestService implements RequestService {
 
         Map<String, List<String>> responseHeaders = getResponseHeaders(httpResponse);
 
-        String responseContent = EntityUtils.toString(responseEntity);
-
         Locale locale = httpResponse.getLocale();
 
         return Response.newBuilder().setRequest(request).setStatus(statusCode).setContentType(contentType)
@@ -383,6 +720,162 @@ public class HttpComponentsRequestService implements RequestService {
                 .setContent(responseContent).setLocale(locale).build();
     }
 
+    /**
+     * Reads the specified response {@link HttpEntity} into a string, aborting the specified {@link HttpRequestBase} as
+     * soon as the body crosses the maximum body size in the specified {@link ResponseSizeLimits}.
+     * 
+     * @param httpRequestBase The {@link HttpRequestBase} that represents the HTTP request.
+     * @param responseEntity The {@link HttpEntity} that holds the response body.
+     * @param responseSizeLimits The {@link ResponseSizeLimits} that apply to the response.
+     * 
+     * @return Returns the response body as a string decoded with the charset of the entity, or ISO-8859-1 if none is
+     *         specified. Returns null if the entity has no content.
+     * 
+     * @throws ParseException Thrown if the content type of the entity cannot be parsed.
+     * @throws IOException Thrown if there was an error reading the response body.
+     * @throws ResponseSizeLimitExceededException Thrown if the response body crosses its limit.
+     */
+    private String getResponseContent(HttpRequestBase httpRequestBase, HttpEntity responseEntity,
+            ResponseSizeLimits responseSizeLimits) throws ParseException, IOException,
+            ResponseSizeLimitExceededException {
+        if (null != responseBufferPool) {
+            PooledBuffer body = readPooledResponseBody(httpRequestBase, responseEntity, responseSizeLimits);
+            try {
+                return body.getContentAsString(getContentCharset(responseEntity));
+            } finally {
+                body.close();
+            }
+        }
+
+        if (!responseSizeLimits.isBodySizeLimited()) {
+            return EntityUtils.toString(responseEntity);
+        }
+
+        long maxBodySize = responseSizeLimits.getMaxBodySize();
+
+        long contentLength = responseEntity.getContentLength();
+        if (contentLength > maxBodySize) {
+            httpRequestBase.abort();
+            throw responseSizeLimitExceeded("Declared response body length exceeded maximum size",
+                    ResponseSizeLimitExceededException.Part.BODY, maxBodySize, contentLength, null);
+        }
+
+        InputStream contentStream = responseEntity.getContent();
+        if (null == contentStream) {
+            return null;
+        }
+
+        try {
+            ByteArrayBuffer content = new ByteArrayBuffer((contentLength < 0) ? 4096 : (int) contentLength);
+
+            byte[] readBuffer = new byte[4096];
+            long bodySize = 0L;
+            int bytesRead;
+            while (-1 != (bytesRead = contentStream.read(readBuffer))) {
+                bodySize += bytesRead;
+                if (bodySize > maxBodySize) {
+                    httpRequestBase.abort();
+                    throw responseSizeLimitExceeded("Response body exceeded maximum size",
+                            ResponseSizeLimitExceededException.Part.BODY, maxBodySize, bodySize, null);
+                }
+                content.append(readBuffer, 0, bytesRead);
+            }
+
+            return new String(content.buffer(), 0, content.length(), getContentCharset(responseEntity));
+        } finally {
+            contentStream.close();
+        }
+    }
+
+    /**
+     * Reads the specified response {@link HttpEntity} into a buffer from the {@link ResponseBufferPool}, aborting the
+     * specified {@link HttpRequestBase} as soon as the body crosses the maximum body size in the specified
+     * {@link ResponseSizeLimits}.
+     * 
+     * @param httpRequestBase The {@link HttpRequestBase} that represents the HTTP request.
+     * @param responseEntity The {@link HttpEntity} that holds the response body.
+     * @param responseSizeLimits The {@link ResponseSizeLimits} that apply to the response.
+     * 
+     * @return Returns a {@link PooledBuffer} holding the response body that the caller must close.
+     * 
+     * @throws IOException Thrown if there was an error reading the response body.
+     * @throws ResponseSizeLimitExceededException Thrown if the response body crosses its limit.
+     */
+    private PooledBuffer readPooledResponseBody(HttpRequestBase httpRequestBase, HttpEntity responseEntity,
+            ResponseSizeLimits responseSizeLimits) throws IOException, ResponseSizeLimitExceededException {
+        long maxBodySize = responseSizeLimits.isBodySizeLimited() ? responseSizeLimits.getMaxBodySize()
+                : Long.MAX_VALUE;
+
+        long contentLength = responseEntity.getContentLength();
+        if (contentLength > maxBodySize) {
+            httpRequestBase.abort();
+            throw responseSizeLimitExceeded("Declared response body length exceeded maximum size",
+                    ResponseSizeLimitExceededException.Part.BODY, maxBodySize, contentLength, null);
+        }
+
+        // Size the buffer from the declared length so a body of known length is read without growing.
+        int initialCapacity = ((contentLength < 0) || (contentLength > Integer.MAX_VALUE)) ? 0 : (int) contentLength;
+        PooledBuffer body = responseBufferPool.acquire(initialCapacity);
+
+        boolean complete = false;
+        InputStream contentStream = null;
+        try {
+            contentStream = responseEntity.getContent();
+            if (null != contentStream) {
+                long bodySize = 0L;
+                int bytesRead;
+                // Never read more than one byte past the limit.
+                while (-1 != (bytesRead = body.readFrom(contentStream,
+                        (int) Math.min(maxBodySize - bodySize, Integer.MAX_VALUE - 1) + 1))) {
+                    bodySize += bytesRead;
+                    if (bodySize > maxBodySize) {
+                        httpRequestBase.abort();
+                        throw responseSizeLimitExceeded("Response body exceeded maximum size",
+                                ResponseSizeLimitExceededException.Part.BODY, maxBodySize, bodySize, null);
+                    }
+                }
+            }
+
+            complete = true;
+
+            return body;
+        } finally {
+            try {
+                if (null != contentStream) {
+                    contentStream.close();
+                }
+            } finally {
+                if (!complete) {
+                    body.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the {@link Charset} declared by the content type of the specified {@link HttpEntity}.
+     * 
+     * @param responseEntity The {@link HttpEntity} whose charset to get.
+     * 
+     * @return Returns the declared {@link Charset}, or ISO-8859-1 if none is declared.
+     * 
+     * @throws ParseException Thrown if the content type of the entity cannot be parsed.
+     */
+    private Charset getContentCharset(HttpEntity responseEntity) throws ParseException {
+        Charset charset = null;
+
+        ContentType contentType = ContentType.get(responseEntity);
+        if (null != contentType) {
+            charset = contentType.getCharset();
+        }
+
+        if (null == charset) {
+            charset = HTTP.DEF_CONTENT_CHARSET;
+        }
+
+        return charset;
+    }
+
     /**
      * Gets the headers from the specified {@link HttpResponse} and turns them into a map of header names to lists of
      * header values.
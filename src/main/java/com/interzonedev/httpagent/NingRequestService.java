@@ -7,7 +7,14 @@ import com.interzonedev.httpcore.Response;
 import com.ning.http.client.AsyncCompletionHandler;
 import com.ning.http.client.AsyncHttpClient;
 import com.ning.http.client.AsyncHttpClient.BoundRequestBuilder;
+import com.ning.http.client.AsyncHttpClientConfig;
+import com.ning.http.client.HttpResponseBodyPart;
+import com.ning.http.client.HttpResponseHeaders;
+import com.ning.http.client.HttpResponseStatus;
 import com.ning.http.client.ListenableFuture;
+import com.ning.http.client.providers.netty.NettyAsyncHttpProviderConfig;
+import com.ning.http.util.AsyncHttpProviderUtils;
+import org.jboss.netty.handler.codec.frame.TooLongFrameException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,17 +23,70 @@ import javax.servlet.http.Cookie;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-public class NingRequestService implements RequestService {
+public class NingRequestService extends AbstractRequestService implements PooledRequestService {
 
     private static final Logger log = LoggerFactory.getLogger(NingRequestService.class);
 
-    private final AsyncHttpClient asyncHttpClient = new AsyncHttpClient();
+    private final AsyncHttpClient asyncHttpClient;
+
+    private final int httpClientCodecMaxHeaderSize;
+
+    private final ResponseSizeLimits responseSizeLimits;
+
+    private final ResponseBufferPool responseBufferPool;
+
+    private final RequestServiceMetrics metrics = new RequestServiceMetrics();
+
+    public NingRequestService() {
+        this(ResponseSizeLimits.UNLIMITED);
+    }
+
+    public NingRequestService(ResponseSizeLimits responseSizeLimits) {
+        this(responseSizeLimits, null);
+    }
+
+    /**
+     * Creates a {@link NingRequestService}.
+     * 
+     * @param responseSizeLimits The default {@link ResponseSizeLimits} for all requests. The header limit also caps
+     *            how much of the status line and headers the HTTP codec buffers, so it stops reading them as soon as
+     *            they could not fit within it. Header limits passed with an individual request are checked once the
+     *            headers have been parsed and cannot raise that cap.
+     * @param responseBufferPool The {@link ResponseBufferPool} into which response bodies are accumulated. May be
+     *            null, in which case Ning accumulates response bodies itself and the {@link PooledRequestService}
+     *            methods are unavailable.
+     */
+    public NingRequestService(ResponseSizeLimits responseSizeLimits, ResponseBufferPool responseBufferPool) {
+        this.responseSizeLimits = responseSizeLimits;
+        this.responseBufferPool = responseBufferPool;
+
+        // The codec does not count the status line towards its header size, so a response within the header limit
+        // never trips it. Without a limit the codec keeps its default header size, which then also bounds the
+        // status line so that a single limit can be reported.
+        NettyAsyncHttpProviderConfig providerConfig = new NettyAsyncHttpProviderConfig();
+        if (responseSizeLimits.isHeaderSizeLimited()) {
+            httpClientCodecMaxHeaderSize = (int) Math.min(responseSizeLimits.getMaxHeaderSize(), Integer.MAX_VALUE);
+        } else {
+            httpClientCodecMaxHeaderSize = providerConfig.getHttpClientCodecMaxHeaderSize();
+        }
+        providerConfig.setHttpClientCodecMaxInitialLineLength(httpClientCodecMaxHeaderSize);
+        providerConfig.setHttpClientCodecMaxHeaderSize(httpClientCodecMaxHeaderSize);
+
+        asyncHttpClient = new AsyncHttpClient(new AsyncHttpClientConfig.Builder()
+                .setAsyncHttpClientProviderConfig(providerConfig).build());
+    }
 
     @PreDestroy
     public void destroy() {
@@ -35,14 +95,31 @@ public class NingRequestService implements RequestService {
         }
     }
 
+    /**
+     * Gets the {@link RequestServiceMetrics} maintained by this service.
+     * 
+     * @return Returns the {@link RequestServiceMetrics} maintained by this service.
+     */
+    public RequestServiceMetrics getMetrics() {
+        return metrics;
+    }
+
     @Override
-    public Response doSynchronousRequest(Request request) throws HttpException {
+    public Response doSynchronousRequest(Request request, ResponseSizeLimits responseSizeLimits)
+            throws HttpException {
         try {
             log.debug("doSynchronousRequest: Start - request = " + request);
-            Future<Response> responseFuture = doRequest(request);
+            Future<Response> responseFuture = doRequest(request, responseSizeLimits);
             Response response = responseFuture.get();
             log.debug("doSynchronousRequest: Returning response = " + response);
             return response;
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof ResponseSizeLimitExceededException) {
+                throw (ResponseSizeLimitExceededException) ee.getCause();
+            }
+            String errorMessage = "Error performing synchronous HTTP request";
+            log.error("doSynchronousRequest: " + errorMessage, ee);
+            throw new HttpException(errorMessage, ee);
         } catch (Exception e) {
             String errorMessage = "Error performing synchronous HTTP request";
             log.error("doSynchronousRequest: " + errorMessage, e);
@@ -53,24 +130,44 @@ public class NingRequestService implements RequestService {
     }
 
     @Override
-    public Future<Response> doRequest(final Request request) throws HttpException {
+    public Future<Response> doRequest(final Request request, ResponseSizeLimits responseSizeLimits,
+            final ResponseCallback responseCallback) throws HttpException {
         try {
             log.debug("doRequest: Start - request = " + request);
 
             BoundRequestBuilder requestBuilder = getRequestBuilderFromRequest(request);
 
-            final ListenableFuture<Response> responseFuture = requestBuilder
-                    .execute(new AsyncCompletionHandler<Response>() {
-                        @Override
-                        public Response onCompleted(com.ning.http.client.Response ningResponse) throws Exception {
-                            return transformResponse(request, ningResponse);
-                        }
+            SizeLimitedCompletionHandler<Response> completionHandler = new SizeLimitedCompletionHandler<Response>(
+                    request, getResponseSizeLimits(responseSizeLimits)) {
+                @Override
+                protected Response completed(com.ning.http.client.Response ningResponse, PooledBuffer body)
+                        throws Exception {
+                    if (null == body) {
+                        return transformResponse(request, ningResponse);
+                    }
+
+                    try {
+                        String responseContent = body.getContentAsString(getContentCharset(ningResponse));
+                        return transformResponse(request, ningResponse, responseContent, responseContent.length());
+                    } finally {
+                        body.close();
+                    }
+                }
+            };
+
+            ListenableFuture<Response> ningResponseFuture = requestBuilder.execute(completionHandler);
+
+            final Future<Response> responseFuture = new SizeLimitedResponseFuture<Response>(ningResponseFuture,
+                    completionHandler);
 
-                        @Override
-                        public void onThrowable(Throwable t) {
-                            log.error("onThrowable: Error making request", t);
-                        }
-                    });
+            if (null != responseCallback) {
+                ningResponseFuture.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        ResponseCallbacks.notifyCompleted(responseFuture, responseCallback);
+                    }
+                }, ResponseCallbacks.DIRECT_EXECUTOR);
+            }
 
             log.debug("doRequest: Got response future");
 
@@ -84,6 +181,337 @@ public class NingRequestService implements RequestService {
         }
     }
 
+    @Override
+    public PooledResponse doSynchronousPooledRequest(Request request, ResponseSizeLimits responseSizeLimits)
+            throws HttpException {
+        try {
+            log.debug("doSynchronousPooledRequest: Start - request = " + request);
+            Future<PooledResponse> responseFuture = doPooledRequest(request, responseSizeLimits);
+            PooledResponse pooledResponse = responseFuture.get();
+            log.debug("doSynchronousPooledRequest: Returning response = " + pooledResponse.getResponse());
+            return pooledResponse;
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof ResponseSizeLimitExceededException) {
+                throw (ResponseSizeLimitExceededException) ee.getCause();
+            }
+            String errorMessage = "Error performing synchronous pooled HTTP request";
+            log.error("doSynchronousPooledRequest: " + errorMessage, ee);
+            throw new HttpException(errorMessage, ee);
+        } catch (HttpException he) {
+            throw he;
+        } catch (Exception e) {
+            String errorMessage = "Error performing synchronous pooled HTTP request";
+            log.error("doSynchronousPooledRequest: " + errorMessage, e);
+            throw new HttpException(errorMessage, e);
+        } finally {
+            log.debug("doSynchronousPooledRequest: End");
+        }
+    }
+
+    @Override
+    public Future<PooledResponse> doPooledRequest(final Request request, ResponseSizeLimits responseSizeLimits)
+            throws HttpException {
+        try {
+            log.debug("doPooledRequest: Start - request = " + request);
+
+            if (null == responseBufferPool) {
+                String errorMessage = "NingRequestService has no ResponseBufferPool configured";
+                log.error(errorMessage);
+                throw new IllegalStateException(errorMessage);
+            }
+
+            BoundRequestBuilder requestBuilder = getRequestBuilderFromRequest(request);
+
+            SizeLimitedCompletionHandler<PooledResponse> completionHandler;
+            completionHandler = new SizeLimitedCompletionHandler<PooledResponse>(request,
+                    getResponseSizeLimits(responseSizeLimits)) {
+                @Override
+                protected PooledResponse completed(com.ning.http.client.Response ningResponse, PooledBuffer body)
+                        throws Exception {
+                    if (null == body) {
+                        body = responseBufferPool.acquire(0);
+                    }
+
+                    try {
+                        Response response = transformResponse(request, ningResponse, null, body.size());
+                        return new PooledResponse(response, body, getContentCharset(ningResponse));
+                    } catch (Exception e) {
+                        body.close();
+                        throw e;
+                    }
+                }
+            };
+
+            ListenableFuture<PooledResponse> ningResponseFuture = requestBuilder.execute(completionHandler);
+
+            log.debug("doPooledRequest: Got response future");
+
+            return new SizeLimitedResponseFuture<PooledResponse>(ningResponseFuture, completionHandler);
+        } catch (Exception e) {
+            String errorMessage = "Error performing asynchronous pooled HTTP request";
+            log.error("doPooledRequest: " + errorMessage, e);
+            throw new HttpException(errorMessage, e);
+        } finally {
+            log.debug("doPooledRequest: End");
+        }
+    }
+
+    private ResponseSizeLimits getResponseSizeLimits(ResponseSizeLimits requestResponseSizeLimits) {
+        return (null != requestResponseSizeLimits) ? requestResponseSizeLimits : responseSizeLimits;
+    }
+
+    /**
+     * {@link AsyncCompletionHandler} that aborts the response as soon as its headers or body cross the applicable
+     * {@link ResponseSizeLimits}. Body parts are counted as they arrive, so an oversized body is never buffered beyond
+     * the limit. When a {@link ResponseBufferPool} is configured body parts are copied into a pooled buffer instead of
+     * being accumulated by Ning.
+     * 
+     * A crossed limit is thrown from the callback rather than signalled by returning {@link STATE#ABORT}. Ning treats
+     * an aborted response as finished and pools or drains its connection, while an exception makes it close the
+     * connection and fail the future with the exception.
+     */
+    private abstract class SizeLimitedCompletionHandler<T> extends AsyncCompletionHandler<T> {
+        private final Request request;
+
+        private final ResponseSizeLimits responseSizeLimits;
+
+        private volatile ResponseSizeLimitExceededException limitExceededException;
+
+        private volatile PooledBuffer body;
+
+        private long statusLineSize = 0L;
+
+        private long bodySize = 0L;
+
+        private SizeLimitedCompletionHandler(Request request, ResponseSizeLimits responseSizeLimits) {
+            this.request = request;
+            this.responseSizeLimits = responseSizeLimits;
+        }
+
+        private ResponseSizeLimitExceededException getLimitExceededException() {
+            return limitExceededException;
+        }
+
+        /**
+         * Assembles the result of the request once the complete response has been received.
+         * 
+         * @param ningResponse The Ning response holding the status and headers, and the body if no
+         *            {@link ResponseBufferPool} is configured.
+         * @param body The {@link PooledBuffer} holding the body if a {@link ResponseBufferPool} is configured, null
+         *            otherwise. Ownership passes to this method.
+         * 
+         * @return Returns the result of the request.
+         * 
+         * @throws Exception Thrown if there is an error assembling the result.
+         */
+        protected abstract T completed(com.ning.http.client.Response ningResponse, PooledBuffer body)
+                throws Exception;
+
+        @Override
+        public STATE onStatusReceived(HttpResponseStatus status) throws Exception {
+            // Status line plus CRLF.
+            statusLineSize = status.getProtocolText().length() + 1 + String.valueOf(status.getStatusCode()).length() + 1
+                    + status.getStatusText().length() + 2;
+
+            return super.onStatusReceived(status);
+        }
+
+        @Override
+        public STATE onHeadersReceived(HttpResponseHeaders headers) throws Exception {
+            if (responseSizeLimits.isHeaderSizeLimited()) {
+                // Headers are ISO-8859-1 on the wire, so characters and bytes coincide. Each line ends with CRLF.
+                // Trailers arrive as the response headers merged with the trailing headers, so the size is summed
+                // afresh rather than added to.
+                long headerSize = statusLineSize;
+                for (Map.Entry<String, List<String>> header : headers.getHeaders().entrySet()) {
+                    for (String headerValue : header.getValue()) {
+                        headerSize += header.getKey().length() + 2 + headerValue.length() + 2;
+                    }
+                }
+
+                long maxHeaderSize = responseSizeLimits.getMaxHeaderSize();
+                if (headerSize > maxHeaderSize) {
+                    throw responseSizeLimitExceeded("Response headers exceeded maximum size",
+                            ResponseSizeLimitExceededException.Part.HEADERS, maxHeaderSize, headerSize);
+                }
+            }
+
+            if (headers.isTraillingHeadersReceived()) {
+                // The body has already been received.
+                return super.onHeadersReceived(headers);
+            }
+
+            long contentLength = -1L;
+            String contentLengthHeader = headers.getHeaders().getFirstValue("Content-Length");
+            if (null != contentLengthHeader) {
+                try {
+                    contentLength = Long.parseLong(contentLengthHeader.trim());
+                } catch (NumberFormatException nfe) {
+                    log.warn("onHeadersReceived: Ignoring invalid Content-Length " + contentLengthHeader);
+                }
+            }
+
+            if (responseSizeLimits.isBodySizeLimited()) {
+                long maxBodySize = responseSizeLimits.getMaxBodySize();
+                if (contentLength > maxBodySize) {
+                    throw responseSizeLimitExceeded("Declared response body length exceeded maximum size",
+                            ResponseSizeLimitExceededException.Part.BODY, maxBodySize, contentLength);
+                }
+            }
+
+            if ((null != responseBufferPool) && (null == body)) {
+                // Size the buffer from the declared length so a body of known length is accumulated without growing.
+                int initialCapacity = ((contentLength < 0) || (contentLength > Integer.MAX_VALUE)) ? 0
+                        : (int) contentLength;
+                body = responseBufferPool.acquire(initialCapacity);
+            }
+
+            return super.onHeadersReceived(headers);
+        }
+
+        @Override
+        public STATE onBodyPartReceived(HttpResponseBodyPart content) throws Exception {
+            if (responseSizeLimits.isBodySizeLimited()) {
+                bodySize += content.length();
+
+                long maxBodySize = responseSizeLimits.getMaxBodySize();
+                if (bodySize > maxBodySize) {
+                    throw responseSizeLimitExceeded("Response body exceeded maximum size",
+                            ResponseSizeLimitExceededException.Part.BODY, maxBodySize, bodySize);
+                }
+            }
+
+            PooledBuffer currentBody = body;
+            if (null != currentBody) {
+                currentBody.write(content.getBodyByteBuffer());
+                return STATE.CONTINUE;
+            }
+
+            return super.onBodyPartReceived(content);
+        }
+
+        @Override
+        public T onCompleted(com.ning.http.client.Response ningResponse) throws Exception {
+            if (null != limitExceededException) {
+                releaseBody();
+                throw limitExceededException;
+            }
+
+            PooledBuffer currentBody = body;
+            body = null;
+
+            return completed(ningResponse, currentBody);
+        }
+
+        @Override
+        public void onThrowable(Throwable t) {
+            releaseBody();
+
+            if (t instanceof TooLongFrameException) {
+                // The HTTP codec stopped reading the status line or headers before they reached this handler.
+                ResponseSizeLimitExceededException exception = responseSizeLimitExceeded(
+                        "Response status line or headers exceeded maximum size",
+                        ResponseSizeLimitExceededException.Part.HEADERS, httpClientCodecMaxHeaderSize, -1L);
+                exception.initCause(t);
+            } else if (t != limitExceededException) {
+                log.error("onThrowable: Error making request " + request, t);
+            }
+        }
+
+        private void releaseBody() {
+            PooledBuffer currentBody = body;
+            if (null != currentBody) {
+                body = null;
+                currentBody.close();
+            }
+        }
+
+        /**
+         * Creates a {@link ResponseSizeLimitExceededException}, records it as the reason the response was abandoned,
+         * counts it in the {@link RequestServiceMetrics} of this service and releases the body.
+         * 
+         * @param message The message of the exception.
+         * @param part The part of the response that crossed its limit.
+         * @param limit The limit in bytes that was crossed.
+         * @param size The size in bytes declared or read when the limit was crossed, or -1 if not known.
+         * 
+         * @return Returns the {@link ResponseSizeLimitExceededException} to throw.
+         */
+        private ResponseSizeLimitExceededException responseSizeLimitExceeded(String message,
+                ResponseSizeLimitExceededException.Part part, long limit, long size) {
+            String errorMessage = message + " of " + limit + " bytes";
+            log.warn("responseSizeLimitExceeded: " + errorMessage);
+
+            ResponseSizeLimitExceededException exception = new ResponseSizeLimitExceededException(errorMessage, part,
+                    limit, size);
+            limitExceededException = exception;
+            metrics.responseSizeLimitExceeded(exception);
+
+            releaseBody();
+
+            return exception;
+        }
+    }
+
+    /**
+     * {@link Future} over a Ning response future that fails with the {@link ResponseSizeLimitExceededException}
+     * recorded by its {@link SizeLimitedCompletionHandler}, if any. Ning fails the future with the exception it was
+     * given, which for limits enforced by the HTTP codec is the codec's own exception.
+     */
+    private static class SizeLimitedResponseFuture<T> implements Future<T> {
+        private final ListenableFuture<T> responseFuture;
+
+        private final SizeLimitedCompletionHandler<T> completionHandler;
+
+        private SizeLimitedResponseFuture(ListenableFuture<T> responseFuture,
+                SizeLimitedCompletionHandler<T> completionHandler) {
+            this.responseFuture = responseFuture;
+            this.completionHandler = completionHandler;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return responseFuture.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return responseFuture.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return responseFuture.isDone();
+        }
+
+        @Override
+        public T get() throws InterruptedException, ExecutionException {
+            try {
+                return responseFuture.get();
+            } catch (ExecutionException ee) {
+                throw getExecutionException(ee);
+            }
+        }
+
+        @Override
+        public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            try {
+                return responseFuture.get(timeout, unit);
+            } catch (ExecutionException ee) {
+                throw getExecutionException(ee);
+            }
+        }
+
+        private ExecutionException getExecutionException(ExecutionException ee) {
+            ResponseSizeLimitExceededException limitExceededException = completionHandler.getLimitExceededException();
+            if ((null == limitExceededException) || (ee.getCause() == limitExceededException)) {
+                return ee;
+            }
+
+            return new ExecutionException(limitExceededException.getMessage(), limitExceededException);
+        }
+    }
+
     /**
      * Assemble the {@link BoundRequestBuilder} instance that represents the HTTP request from the {@link Request} value
      * object.
@@ -218,17 +646,20 @@ public class NingRequestService implements RequestService {
     }
 
     private Response transformResponse(Request request, com.ning.http.client.Response ningResponse) throws IOException {
+        String responseContent = ningResponse.getResponseBody();
+
+        // TODO - Check headers first.
+        return transformResponse(request, ningResponse, responseContent, responseContent.length());
+    }
+
+    private Response transformResponse(Request request, com.ning.http.client.Response ningResponse,
+            String responseContent, long contentLength) {
         int statusCode = ningResponse.getStatusCode();
 
         String contentType = ningResponse.getContentType();
 
-        String responseContent = ningResponse.getResponseBody();
-
         Map<String, List<String>> responseHeaders = ningResponse.getHeaders();
 
-        // TODO - Check headers first.
-        long contentLength = responseContent.length();
-
         Map<String, Cookie> cookies = getCookiesFromResponse(ningResponse);
 
         // TODO - Get locale from headers
@@ -239,6 +670,33 @@ public class NingRequestService implements RequestService {
                 .setContent(responseContent).setLocale(locale).build();
     }
 
+    /**
+     * Gets the {@link Charset} declared by the content type of the specified Ning response.
+     * 
+     * @param ningResponse The Ning response whose charset to get.
+     * 
+     * @return Returns the declared {@link Charset}, or ISO-8859-1 if none is declared.
+     */
+    private Charset getContentCharset(com.ning.http.client.Response ningResponse) {
+        String contentType = ningResponse.getContentType();
+        if (null == contentType) {
+            return AsyncHttpProviderUtils.DEFAULT_CHARSET;
+        }
+
+        String charsetName = AsyncHttpProviderUtils.parseCharset(contentType);
+        if (null == charsetName) {
+            return AsyncHttpProviderUtils.DEFAULT_CHARSET;
+        }
+
+        try {
+            return Charset.forName(charsetName);
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            log.warn("getContentCharset: Unsupported charset " + charsetName + ", using "
+                    + AsyncHttpProviderUtils.DEFAULT_CHARSET);
+            return AsyncHttpProviderUtils.DEFAULT_CHARSET;
+        }
+    }
+
     private Map<String, Cookie> getCookiesFromResponse(com.ning.http.client.Response ningResponse) {
         Map<String, Cookie> cookies = new HashMap<String, Cookie>();
 
@@ -0,0 +1,150 @@
+package com.interzonedev.httpagent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Growable byte buffer backed by buffers from a {@link ResponseBufferPool}. Growing moves the contents to a buffer of
+ * the next size class that fits and returns the old buffer to the pool. The buffer must be closed once its contents
+ * are no longer needed; its contents must not be used after it is closed.
+ */
+public class PooledBuffer implements Closeable {
+
+    private final ResponseBufferPool responseBufferPool;
+
+    private final ResponseBufferPool.BufferSlot slot;
+
+    PooledBuffer(ResponseBufferPool responseBufferPool, ResponseBufferPool.BufferSlot slot) {
+        this.responseBufferPool = responseBufferPool;
+        this.slot = slot;
+    }
+
+    /**
+     * Gets the number of bytes written to this buffer.
+     *
+     * @return Returns the number of bytes written to this buffer.
+     */
+    public int size() {
+        return getBuffer().position();
+    }
+
+    /**
+     * Gets a read only view of the bytes written to this buffer. The view is only valid until this buffer is closed.
+     *
+     * @return Returns a read only {@link ByteBuffer} positioned at the first byte written to this buffer.
+     */
+    public ByteBuffer getContent() {
+        ByteBuffer content = getBuffer().duplicate();
+        content.flip();
+        return content.asReadOnlyBuffer();
+    }
+
+    /**
+     * Decodes the bytes written to this buffer into a string.
+     *
+     * @param charset The {@link Charset} with which to decode the bytes.
+     *
+     * @return Returns the bytes written to this buffer decoded with the specified {@link Charset}.
+     */
+    public String getContentAsString(Charset charset) {
+        ByteBuffer buffer = getBuffer();
+
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset(), buffer.position(), charset);
+        }
+
+        ByteBuffer content = buffer.duplicate();
+        content.flip();
+        return charset.decode(content).toString();
+    }
+
+    public boolean isReleased() {
+        return slot.released.get();
+    }
+
+    /**
+     * Returns the underlying buffer to the {@link ResponseBufferPool}. Closing an already closed buffer has no effect.
+     */
+    @Override
+    public void close() {
+        responseBufferPool.release(slot);
+    }
+
+    /**
+     * Reads at most the specified number of bytes from the specified {@link InputStream} into this buffer, growing it
+     * if it is full.
+     *
+     * @param inputStream The {@link InputStream} from which to read.
+     * @param maxBytes The maximum number of bytes to read. Must be greater than zero.
+     *
+     * @return Returns the number of bytes read or -1 if the end of the stream has been reached.
+     *
+     * @throws IOException Thrown if there is an error reading from the {@link InputStream}.
+     */
+    int readFrom(InputStream inputStream, int maxBytes) throws IOException {
+        ByteBuffer buffer = ensureRemaining(1);
+
+        int length = Math.min(buffer.remaining(), maxBytes);
+
+        if (buffer.hasArray()) {
+            int bytesRead = inputStream.read(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            if (bytesRead > 0) {
+                buffer.position(buffer.position() + bytesRead);
+            }
+            return bytesRead;
+        }
+
+        byte[] transferBuffer = responseBufferPool.getTransferBuffer();
+        int bytesRead = inputStream.read(transferBuffer, 0, Math.min(length, transferBuffer.length));
+        if (bytesRead > 0) {
+            buffer.put(transferBuffer, 0, bytesRead);
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Appends the remaining bytes of the specified {@link ByteBuffer} to this buffer, growing it as needed.
+     *
+     * @param source The {@link ByteBuffer} whose remaining bytes to append.
+     */
+    void write(ByteBuffer source) {
+        ensureRemaining(source.remaining()).put(source);
+    }
+
+    private ByteBuffer getBuffer() {
+        ByteBuffer buffer = slot.buffer;
+        if (slot.released.get() || (null == buffer)) {
+            throw new IllegalStateException("PooledBuffer has already been released");
+        }
+
+        return buffer;
+    }
+
+    private ByteBuffer ensureRemaining(int bytes) {
+        ByteBuffer buffer = getBuffer();
+
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+
+        long required = (long) buffer.position() + bytes;
+        if (required > Integer.MAX_VALUE) {
+            throw new IllegalStateException("PooledBuffer cannot grow beyond " + Integer.MAX_VALUE + " bytes");
+        }
+
+        int newCapacity = (int) Math.max(required, Math.min((long) buffer.capacity() * 2, Integer.MAX_VALUE));
+
+        ByteBuffer grownBuffer = responseBufferPool.allocate(newCapacity);
+        buffer.flip();
+        grownBuffer.put(buffer);
+
+        slot.buffer = grownBuffer;
+        responseBufferPool.recycle(buffer);
+
+        return grownBuffer;
+    }
+
+}
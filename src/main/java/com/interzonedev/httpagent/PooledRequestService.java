@@ -0,0 +1,84 @@
+package com.interzonedev.httpagent;
+
+import java.util.concurrent.Future;
+
+import com.interzonedev.httpcore.HttpException;
+import com.interzonedev.httpcore.Request;
+
+/**
+ * Interface for performing HTTP requests whose response bodies are read into buffers from a
+ * {@link ResponseBufferPool} and returned as {@link PooledResponse}s. Every {@link PooledResponse} returned must be
+ * closed once its body is no longer needed.
+ */
+public interface PooledRequestService {
+
+    /**
+     * Performs a synchronous HTTP request using the url, method, headers and parameters in the specified
+     * {@link Request} value object and reads the response body into a pooled buffer.
+     *
+     * @param request The {@link Request} value object that contains the components of the HTTP request to be made.
+     *
+     * @return Returns a {@link PooledResponse} that holds the components and body of the HTTP response.
+     *
+     * @throws HttpException Thrown if there is an error performing the HTTP request or if no
+     *             {@link ResponseBufferPool} is configured.
+     */
+    default PooledResponse doSynchronousPooledRequest(Request request) throws HttpException {
+        return doSynchronousPooledRequest(request, null);
+    }
+
+    /**
+     * Performs a synchronous HTTP request using the url, method, headers and parameters in the specified
+     * {@link Request} value object and reads the response body into a pooled buffer, aborting the response if it
+     * crosses the specified {@link ResponseSizeLimits}.
+     *
+     * @param request The {@link Request} value object that contains the components of the HTTP request to be made.
+     * @param responseSizeLimits The {@link ResponseSizeLimits} for this request only. May be null, in which case the
+     *            default limits of the implementation apply.
+     *
+     * @return Returns a {@link PooledResponse} that holds the components and body of the HTTP response.
+     *
+     * @throws ResponseSizeLimitExceededException Thrown if the response crosses the applicable
+     *             {@link ResponseSizeLimits}.
+     * @throws HttpException Thrown if there is an error performing the HTTP request or if no
+     *             {@link ResponseBufferPool} is configured.
+     */
+    PooledResponse doSynchronousPooledRequest(Request request, ResponseSizeLimits responseSizeLimits)
+            throws HttpException;
+
+    /**
+     * Performs an asynchronous HTTP request using the url, method, headers and parameters in the specified
+     * {@link Request} value object and reads the response body into a pooled buffer.
+     *
+     * @param request The {@link Request} value object that contains the components of the HTTP request to be made.
+     *
+     * @return Returns a {@link Future} that wraps a {@link PooledResponse} that holds the components and body of the
+     *         HTTP response.
+     *
+     * @throws HttpException Thrown if there is an error performing the HTTP request or if no
+     *             {@link ResponseBufferPool} is configured.
+     */
+    default Future<PooledResponse> doPooledRequest(Request request) throws HttpException {
+        return doPooledRequest(request, null);
+    }
+
+    /**
+     * Performs an asynchronous HTTP request using the url, method, headers and parameters in the specified
+     * {@link Request} value object and reads the response body into a pooled buffer, aborting the response if it
+     * crosses the specified {@link ResponseSizeLimits}.
+     *
+     * @param request The {@link Request} value object that contains the components of the HTTP request to be made.
+     * @param responseSizeLimits The {@link ResponseSizeLimits} for this request only. May be null, in which case the
+     *            default limits of the implementation apply.
+     *
+     * @return Returns a {@link Future} that wraps a {@link PooledResponse} that holds the components and body of the
+     *         HTTP response. If the response crosses the applicable {@link ResponseSizeLimits} the {@link Future}
+     *         fails with a {@link ResponseSizeLimitExceededException} as the cause.
+     *
+     * @throws HttpException Thrown if there is an error performing the HTTP request or if no
+     *             {@link ResponseBufferPool} is configured.
+     */
+    Future<PooledResponse> doPooledRequest(Request request, ResponseSizeLimits responseSizeLimits)
+            throws HttpException;
+
+}
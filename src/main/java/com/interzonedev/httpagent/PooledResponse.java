@@ -0,0 +1,81 @@
+package com.interzonedev.httpagent;
+
+import com.interzonedev.httpcore.Response;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * An HTTP response whose body is held in a {@link PooledBuffer} rather than a string. The wrapped {@link Response}
+ * value object carries the status, headers, cookies and other components of the response but no content. A
+ * {@link PooledResponse} must be closed once its body is no longer needed so the buffer can be reused.
+ */
+public class PooledResponse implements Closeable {
+
+    private final Response response;
+
+    private final PooledBuffer body;
+
+    private final Charset charset;
+
+    PooledResponse(Response response, PooledBuffer body, Charset charset) {
+        this.response = response;
+        this.body = body;
+        this.charset = charset;
+    }
+
+    /**
+     * Gets the {@link Response} value object that holds the components of the response other than the body.
+     *
+     * @return Returns the {@link Response} value object without content.
+     */
+    public Response getResponse() {
+        return response;
+    }
+
+    /**
+     * Gets a read only view of the response body. The view is only valid until this response is closed.
+     *
+     * @return Returns a read only {@link ByteBuffer} that holds the response body.
+     */
+    public ByteBuffer getBody() {
+        return body.getContent();
+    }
+
+    /**
+     * Gets the size in bytes of the response body.
+     *
+     * @return Returns the size in bytes of the response body.
+     */
+    public int getBodySize() {
+        return body.size();
+    }
+
+    /**
+     * Gets the {@link Charset} taken from the content type of the response, or the HTTP default if none is specified.
+     *
+     * @return Returns the {@link Charset} of the response body.
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Decodes the response body into a string with the {@link Charset} of the response.
+     *
+     * @return Returns the response body as a string.
+     */
+    public String getBodyAsString() {
+        return body.getContentAsString(charset);
+    }
+
+    /**
+     * Returns the buffer holding the response body to its pool. Closing an already closed response has no effect.
+     */
+    @Override
+    public void close() {
+        body.close();
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.interzonedev.httpagent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable value object describing a request rate quota as a sustained number of permits per second and the number
+ * of requests that may be sent back to back before the sustained rate is enforced.
+ */
+public final class RateLimit {
+
+    private final double permitsPerSecond;
+
+    private final int burst;
+
+    private final long emissionIntervalNanos;
+
+    private final long burstToleranceNanos;
+
+    /**
+     * Creates a {@link RateLimit} with the specified sustained rate and burst size.
+     *
+     * @param permitsPerSecond The sustained number of requests allowed per second. Must be greater than zero.
+     * @param burst The number of requests that may be sent back to back. Must be at least one.
+     */
+    public RateLimit(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("permitsPerSecond must be greater than zero: " + permitsPerSecond);
+        }
+
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be at least one: " + burst);
+        }
+
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.emissionIntervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1L) / permitsPerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Gets the spacing in nanoseconds between requests sent at the sustained rate.
+     *
+     * @return Returns the spacing in nanoseconds between requests sent at the sustained rate.
+     */
+    long getEmissionIntervalNanos() {
+        return emissionIntervalNanos;
+    }
+
+    /**
+     * Gets how far in nanoseconds the theoretical arrival time may run ahead of the current time before requests are
+     * throttled.
+     *
+     * @return Returns the burst tolerance in nanoseconds.
+     */
+    long getBurstToleranceNanos() {
+        return burstToleranceNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimit [permitsPerSecond=" + permitsPerSecond + ", burst=" + burst + "]";
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.interzonedev.httpagent;
+
+import com.interzonedev.httpcore.HttpException;
+
+/**
+ * Thrown by a {@link RateLimitedRequestService} when a request is rejected because it exceeds its rate limit.
+ */
+public class RateLimitExceededException extends HttpException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String key;
+
+    public RateLimitExceededException(String message, String key) {
+        super(message);
+        this.key = key;
+    }
+
+    /**
+     * Gets the rate limit key against which the rejected request was counted.
+     *
+     * @return Returns the rate limit key against which the rejected request was counted.
+     */
+    public String getKey() {
+        return key;
+    }
+
+}
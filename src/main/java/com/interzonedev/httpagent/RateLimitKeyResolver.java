@@ -0,0 +1,19 @@
+package com.interzonedev.httpagent;
+
+import com.interzonedev.httpcore.Request;
+
+/**
+ * Interface for determining the key against which a {@link Request} is counted by a {@link RateLimiter}.
+ */
+public interface RateLimitKeyResolver {
+
+    /**
+     * Gets the rate limit key for the specified {@link Request}.
+     *
+     * @param request The {@link Request} value object for which to get the rate limit key.
+     *
+     * @return Returns the key against which the specified {@link Request} is counted. Must not be null.
+     */
+    String getKey(Request request);
+
+}
@@ -0,0 +1,20 @@
+package com.interzonedev.httpagent;
+
+/**
+ * How a {@link RateLimitedRequestService} handles a request that exceeds its rate limit.
+ */
+public enum RateLimitMode {
+
+    /**
+     * Throttled requests are rejected immediately with a {@link RateLimitExceededException}.
+     */
+    FAIL_FAST,
+
+    /**
+     * Throttled requests are sent from a timer once their slot comes up, as long as the wait does not exceed the
+     * configured maximum delay. Requests that would wait longer are rejected with a
+     * {@link RateLimitExceededException}.
+     */
+    DELAY
+
+}
@@ -0,0 +1,194 @@
+package com.interzonedev.httpagent;
+
+import com.interzonedev.httpcore.HttpException;
+import com.interzonedev.httpcore.Request;
+import com.interzonedev.httpcore.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RequestService} decorator that applies per key rate limits from a {@link RateLimiter} before handing requests
+ * to another {@link RequestService}. Throttled asynchronous requests either fail fast or are sent from a single timer
+ * thread once their slot comes up, so they never occupy threads or callbacks of the underlying {@link RequestService}
+ * while they wait.
+ */
+public class RateLimitedRequestService extends AbstractRequestService {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitedRequestService.class);
+
+    private final RequestService requestService;
+
+    private final RateLimiter rateLimiter;
+
+    private final RateLimitKeyResolver rateLimitKeyResolver;
+
+    private final RateLimitMode rateLimitMode;
+
+    private final long maxDelayNanos;
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "httpagent-rate-limit-timer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Creates a {@link RateLimitedRequestService} that counts requests against their host and fails fast when a host
+     * is over its rate limit.
+     *
+     * @param requestService The {@link RequestService} that performs the requests.
+     * @param rateLimiter The {@link RateLimiter} that holds the rate limits.
+     */
+    public RateLimitedRequestService(RequestService requestService, RateLimiter rateLimiter) {
+        this(requestService, rateLimiter, new HostRateLimitKeyResolver(), RateLimitMode.FAIL_FAST, 0L);
+    }
+
+    /**
+     * Creates a {@link RateLimitedRequestService}.
+     *
+     * @param requestService The {@link RequestService} that performs the requests.
+     * @param rateLimiter The {@link RateLimiter} that holds the rate limits.
+     * @param rateLimitKeyResolver The {@link RateLimitKeyResolver} that determines the key each request is counted
+     *            against.
+     * @param rateLimitMode The {@link RateLimitMode} that determines how throttled requests are handled.
+     * @param maxDelayMillis For {@link RateLimitMode#DELAY}, the longest time in milliseconds a throttled request may
+     *            wait before it is rejected. Ignored for {@link RateLimitMode#FAIL_FAST}.
+     */
+    public RateLimitedRequestService(RequestService requestService, RateLimiter rateLimiter,
+            RateLimitKeyResolver rateLimitKeyResolver, RateLimitMode rateLimitMode, long maxDelayMillis) {
+        this.requestService = requestService;
+        this.rateLimiter = rateLimiter;
+        this.rateLimitKeyResolver = rateLimitKeyResolver;
+        this.rateLimitMode = rateLimitMode;
+        this.maxDelayNanos = RateLimitMode.DELAY.equals(rateLimitMode) ? TimeUnit.MILLISECONDS.toNanos(maxDelayMillis)
+                : 0L;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        // Requests already waiting on the timer are still sent.
+        timer.shutdown();
+    }
+
+    @Override
+    public Response doSynchronousRequest(Request request, ResponseSizeLimits responseSizeLimits)
+            throws HttpException {
+        try {
+            log.debug("doSynchronousRequest: Start - request = " + request);
+
+            long delayNanos = reserve(request);
+            if (delayNanos > 0L) {
+                log.debug("doSynchronousRequest: Waiting " + delayNanos + " ns for rate limit");
+                TimeUnit.NANOSECONDS.sleep(delayNanos);
+            }
+
+            Response response = requestService.doSynchronousRequest(request, responseSizeLimits);
+            log.debug("doSynchronousRequest: Returning response = " + response);
+
+            return response;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            String errorMessage = "Interrupted waiting for rate limit";
+            log.error("doSynchronousRequest: " + errorMessage, ie);
+            throw new HttpException(errorMessage, ie);
+        } catch (HttpException he) {
+            throw he;
+        } catch (Exception e) {
+            String errorMessage = "Error performing rate limited HTTP request";
+            log.error("doSynchronousRequest: " + errorMessage, e);
+            throw new HttpException(errorMessage, e);
+        } finally {
+            log.debug("doSynchronousRequest: End");
+        }
+    }
+
+    @Override
+    public Future<Response> doRequest(final Request request, final ResponseSizeLimits responseSizeLimits,
+            final ResponseCallback responseCallback) throws HttpException {
+        try {
+            log.debug("doRequest: Start - request = " + request);
+
+            // Checked before reserving so a request that could never be scheduled does not use up a slot.
+            if (timer.isShutdown()) {
+                String errorMessage = "Rate limited request service has been shut down";
+                log.error("doRequest: " + errorMessage);
+                throw new HttpException(errorMessage);
+            }
+
+            long delayNanos = reserve(request);
+            if (0L == delayNanos) {
+                return requestService.doRequest(request, responseSizeLimits, responseCallback);
+            }
+
+            log.debug("doRequest: Scheduling request in " + delayNanos + " ns for rate limit");
+
+            final DelayedResponseFuture responseFuture = new DelayedResponseFuture(responseCallback);
+
+            ScheduledFuture<?> scheduledDispatch = timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        responseFuture.dispatched(requestService.doRequest(request, responseSizeLimits,
+                                responseCallback));
+                    } catch (Throwable t) {
+                        log.error("run: Error sending rate limited request", t);
+                        responseFuture.dispatchFailed(t);
+                    }
+                }
+            }, delayNanos, TimeUnit.NANOSECONDS);
+
+            responseFuture.setScheduledDispatch(scheduledDispatch);
+
+            return responseFuture;
+        } catch (HttpException he) {
+            throw he;
+        } catch (RejectedExecutionException ree) {
+            String errorMessage = "Rate limited request service was shut down while scheduling the request";
+            log.error("doRequest: " + errorMessage, ree);
+            throw new HttpException(errorMessage, ree);
+        } catch (Exception e) {
+            String errorMessage = "Error scheduling rate limited HTTP request";
+            log.error("doRequest: " + errorMessage, e);
+            throw new HttpException(errorMessage, e);
+        } finally {
+            log.debug("doRequest: End");
+        }
+    }
+
+    /**
+     * Reserves a slot for the specified {@link Request} with the {@link RateLimiter}.
+     *
+     * @param request The {@link Request} value object for which to reserve a slot.
+     *
+     * @return Returns the number of nanoseconds to wait before sending the request.
+     *
+     * @throws RateLimitExceededException Thrown if the request is rejected.
+     */
+    private long reserve(Request request) throws RateLimitExceededException {
+        String key = rateLimitKeyResolver.getKey(request);
+
+        long delayNanos = rateLimiter.reserve(key, maxDelayNanos);
+
+        if (RateLimiter.REJECTED == delayNanos) {
+            String errorMessage = "Rate limit exceeded for " + key + " (" + rateLimiter.getRateLimit(key) + ", mode "
+                    + rateLimitMode + ")";
+            log.warn("reserve: " + errorMessage);
+            throw new RateLimitExceededException(errorMessage, key);
+        }
+
+        return delayNanos;
+    }
+
+}
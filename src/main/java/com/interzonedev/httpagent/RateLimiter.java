@@ -0,0 +1,175 @@
+package com.interzonedev.httpagent;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free rate limiter implementing the generic cell rate algorithm (GCRA) for an open ended set of keys, such as
+ * host names. Each key keeps a single theoretical arrival time that is advanced with compare-and-set, so concurrent
+ * callers never block one another.
+ */
+public class RateLimiter {
+
+    /**
+     * Value returned by {@link #reserve(String, long)} when a request is not admitted.
+     */
+    public static final long REJECTED = -1L;
+
+    /**
+     * How often in nanoseconds idle keys are evicted.
+     */
+    private static final long EVICTION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10L);
+
+    /**
+     * Theoretical arrival time an evicted key's entry is set to before it is removed, so callers that still hold the
+     * entry know to look up a new one. System.nanoTime never returns this value in practice.
+     */
+    private static final long EVICTED = Long.MIN_VALUE;
+
+    private final RateLimit defaultRateLimit;
+
+    private final Map<String, RateLimit> rateLimitsByKey;
+
+    private final ConcurrentMap<String, AtomicLong> theoreticalArrivalTimes =
+            new ConcurrentHashMap<String, AtomicLong>();
+
+    private final AtomicLong nextEvictionTime = new AtomicLong(System.nanoTime() + EVICTION_INTERVAL_NANOS);
+
+    /**
+     * Creates a {@link RateLimiter} that applies the same {@link RateLimit} to every key.
+     *
+     * @param defaultRateLimit The {@link RateLimit} applied to every key.
+     */
+    public RateLimiter(RateLimit defaultRateLimit) {
+        this(defaultRateLimit, Collections.<String, RateLimit> emptyMap());
+    }
+
+    /**
+     * Creates a {@link RateLimiter} that applies the {@link RateLimit}s in the specified map to their keys and the
+     * default {@link RateLimit} to all other keys.
+     *
+     * @param defaultRateLimit The {@link RateLimit} applied to keys that are not in the specified map. May be null, in
+     *            which case keys that are not in the specified map are not limited.
+     * @param rateLimitsByKey A map of keys to the {@link RateLimit}s applied to them.
+     */
+    public RateLimiter(RateLimit defaultRateLimit, Map<String, RateLimit> rateLimitsByKey) {
+        this.defaultRateLimit = defaultRateLimit;
+        this.rateLimitsByKey = Collections.unmodifiableMap(new HashMap<String, RateLimit>(rateLimitsByKey));
+    }
+
+    /**
+     * Gets the {@link RateLimit} applied to the specified key.
+     *
+     * @param key The key for which to get the {@link RateLimit}.
+     *
+     * @return Returns the {@link RateLimit} applied to the specified key or null if the key is not limited.
+     */
+    public RateLimit getRateLimit(String key) {
+        RateLimit rateLimit = rateLimitsByKey.get(key);
+        if (null == rateLimit) {
+            rateLimit = defaultRateLimit;
+        }
+
+        return rateLimit;
+    }
+
+    /**
+     * Attempts to reserve a slot for a request against the specified key without blocking.
+     *
+     * @param key The key against which to count the request.
+     * @param maxDelayNanos The longest delay in nanoseconds the caller is willing to wait before sending the request.
+     *            Zero admits only requests that may be sent immediately.
+     *
+     * @return Returns the number of nanoseconds the caller must wait before sending the request, zero if it may be
+     *         sent immediately or {@link #REJECTED} if the request would have to wait longer than the specified
+     *         maximum delay. A rejected request does not consume a slot.
+     */
+    public long reserve(String key, long maxDelayNanos) {
+        RateLimit rateLimit = getRateLimit(key);
+        if (null == rateLimit) {
+            return 0L;
+        }
+
+        evictIdleKeys();
+
+        AtomicLong theoreticalArrivalTime = getTheoreticalArrivalTime(key);
+
+        long emissionInterval = rateLimit.getEmissionIntervalNanos();
+        long burstTolerance = rateLimit.getBurstToleranceNanos();
+
+        while (true) {
+            long now = System.nanoTime();
+            long current = theoreticalArrivalTime.get();
+
+            if (EVICTED == current) {
+                theoreticalArrivalTime = getTheoreticalArrivalTime(key);
+                continue;
+            }
+
+            // Time only compares safely by difference since System.nanoTime may be negative or wrap.
+            long arrival = (current - now > 0L) ? current : now;
+            long delay = (arrival - burstTolerance) - now;
+
+            if (delay > maxDelayNanos) {
+                return REJECTED;
+            }
+
+            if (theoreticalArrivalTime.compareAndSet(current, arrival + emissionInterval)) {
+                return Math.max(0L, delay);
+            }
+        }
+    }
+
+    /**
+     * Removes the entries of keys whose theoretical arrival time has already passed. Such a key is in the same state
+     * as one that has never been seen, so dropping it keeps the map from growing with every key ever used without
+     * changing any rate limiting decision. At most one caller sweeps per interval.
+     */
+    private void evictIdleKeys() {
+        long now = System.nanoTime();
+        long next = nextEvictionTime.get();
+
+        if ((now - next < 0L) || !nextEvictionTime.compareAndSet(next, now + EVICTION_INTERVAL_NANOS)) {
+            return;
+        }
+
+        for (Map.Entry<String, AtomicLong> entry : theoreticalArrivalTimes.entrySet()) {
+            AtomicLong theoreticalArrivalTime = entry.getValue();
+            long current = theoreticalArrivalTime.get();
+
+            // Marking the entry first means a concurrent reserve either lands before the mark, which fails it, or
+            // sees the mark and moves on to a new entry.
+            if ((EVICTED != current) && (current - now <= 0L)
+                    && theoreticalArrivalTime.compareAndSet(current, EVICTED)) {
+                theoreticalArrivalTimes.remove(entry.getKey(), theoreticalArrivalTime);
+            }
+        }
+    }
+
+    private AtomicLong getTheoreticalArrivalTime(String key) {
+        while (true) {
+            AtomicLong theoreticalArrivalTime = theoreticalArrivalTimes.get(key);
+
+            if (null == theoreticalArrivalTime) {
+                AtomicLong newTheoreticalArrivalTime = new AtomicLong(System.nanoTime());
+                theoreticalArrivalTime = theoreticalArrivalTimes.putIfAbsent(key, newTheoreticalArrivalTime);
+                if (null == theoreticalArrivalTime) {
+                    return newTheoreticalArrivalTime;
+                }
+            }
+
+            if (EVICTED != theoreticalArrivalTime.get()) {
+                return theoreticalArrivalTime;
+            }
+
+            // The sweep marked this entry but has not removed it yet.
+            theoreticalArrivalTimes.remove(key, theoreticalArrivalTime);
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.interzonedev.httpagent;
+
+import com.interzonedev.httpcore.HttpException;
+import com.interzonedev.httpcore.Request;
+import com.interzonedev.httpcore.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Future;
+
+/**
+ * {@link RequestService} decorator that captures every request performed by another {@link RequestService}, together
+ * with its response or failure and its timing, to a {@link TrafficLogWriter}. Asynchronous requests are recorded from
+ * a {@link ResponseCallback} when they complete, so recording never blocks on the returned {@link Future}. Every
+ * record passes through a {@link TrafficRecordFilter} first, which by default removes credential and cookie headers.
+ */
+public class RecordingRequestService extends AbstractRequestService {
+
+    private static final Logger log = LoggerFactory.getLogger(RecordingRequestService.class);
+
+    private final RequestService requestService;
+
+    private final TrafficLogWriter trafficLogWriter;
+
+    private final TrafficRecordFilter trafficRecordFilter;
+
+    /**
+     * Creates a {@link RecordingRequestService} that removes the
+     * {@link RedactingTrafficRecordFilter#DEFAULT_REDACTED_HEADER_NAMES} from the recorded traffic.
+     *
+     * @param requestService The {@link RequestService} that performs the requests.
+     * @param trafficLogWriter The {@link TrafficLogWriter} to which requests are recorded. Not closed by this service.
+     */
+    public RecordingRequestService(RequestService requestService, TrafficLogWriter trafficLogWriter) {
+        this(requestService, trafficLogWriter, new RedactingTrafficRecordFilter());
+    }
+
+    /**
+     * Creates a {@link RecordingRequestService}.
+     *
+     * @param requestService The {@link RequestService} that performs the requests.
+     * @param trafficLogWriter The {@link TrafficLogWriter} to which requests are recorded. Not closed by this service.
+     * @param trafficRecordFilter The {@link TrafficRecordFilter} that redacts or excludes records before they are
+     *            written.
+     */
+    public RecordingRequestService(RequestService requestService, TrafficLogWriter trafficLogWriter,
+            TrafficRecordFilter trafficRecordFilter) {
+        this.requestService = requestService;
+        this.trafficLogWriter = trafficLogWriter;
+        this.trafficRecordFilter = trafficRecordFilter;
+    }
+
+    @Override
+    public Response doSynchronousRequest(Request request, ResponseSizeLimits responseSizeLimits)
+            throws HttpException {
+        long startTimeMillis = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+
+        try {
+            Response response = requestService.doSynchronousRequest(request, responseSizeLimits);
+            record(startTimeMillis, startNanos, request, response, null);
+            return response;
+        } catch (HttpException he) {
+            record(startTimeMillis, startNanos, request, null, he);
+            throw he;
+        } catch (RuntimeException re) {
+            record(startTimeMillis, startNanos, request, null, re);
+            throw re;
+        }
+    }
+
+    @Override
+    public Future<Response> doRequest(final Request request, ResponseSizeLimits responseSizeLimits,
+            final ResponseCallback responseCallback) throws HttpException {
+        final long startTimeMillis = System.currentTimeMillis();
+        final long startNanos = System.nanoTime();
+
+        try {
+            return requestService.doRequest(request, responseSizeLimits, new ResponseCallback() {
+                @Override
+                public void completed(Response response) {
+                    record(startTimeMillis, startNanos, request, response, null);
+                    ResponseCallbacks.completed(responseCallback, response);
+                }
+
+                @Override
+                public void failed(Throwable t) {
+                    record(startTimeMillis, startNanos, request, null, t);
+                    ResponseCallbacks.failed(responseCallback, t);
+                }
+            });
+        } catch (HttpException he) {
+            record(startTimeMillis, startNanos, request, null, he);
+            throw he;
+        }
+    }
+
+    private void record(long startTimeMillis, long startNanos, Request request, Response response, Throwable t) {
+        long durationNanos = System.nanoTime() - startNanos;
+
+        try {
+            String errorMessage = (null == t) ? null : t.toString();
+            TrafficRecord record = trafficRecordFilter.filter(new TrafficRecord(startTimeMillis, durationNanos,
+                    request, response, errorMessage));
+            if (null != record) {
+                trafficLogWriter.append(record);
+            }
+        } catch (RuntimeException re) {
+            log.error("record: Error recording request " + request, re);
+        }
+    }
+
+}
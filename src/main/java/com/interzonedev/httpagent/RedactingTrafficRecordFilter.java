@@ -0,0 +1,147 @@
+package com.interzonedev.httpagent;
+
+import com.interzonedev.httpcore.Request;
+import com.interzonedev.httpcore.Response;
+
+import javax.servlet.http.Cookie;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link TrafficRecordFilter} that removes headers and parameters likely to hold credentials before traffic is
+ * recorded. Denied headers are removed from both the request and the response, and denied parameters are removed
+ * from both the request parameters and the query string of the request url. Names are matched case insensitively.
+ */
+public class RedactingTrafficRecordFilter implements TrafficRecordFilter {
+
+    /**
+     * The headers removed by default: credentials and session cookies in either direction.
+     */
+    public static final Collection<String> DEFAULT_REDACTED_HEADER_NAMES = Collections.unmodifiableList(Arrays.asList(
+            "Authorization", "Proxy-Authorization", "Cookie", "Set-Cookie", "Set-Cookie2"));
+
+    private final Set<String> redactedHeaderNames;
+
+    private final Set<String> redactedParameterNames;
+
+    /**
+     * Creates a {@link RedactingTrafficRecordFilter} that removes the {@link #DEFAULT_REDACTED_HEADER_NAMES} and no
+     * parameters.
+     */
+    public RedactingTrafficRecordFilter() {
+        this(DEFAULT_REDACTED_HEADER_NAMES, Collections.<String> emptyList());
+    }
+
+    /**
+     * Creates a {@link RedactingTrafficRecordFilter}.
+     *
+     * @param redactedHeaderNames The names of the request and response headers to remove.
+     * @param redactedParameterNames The names of the request parameters to remove, such as api keys or passwords.
+     */
+    public RedactingTrafficRecordFilter(Collection<String> redactedHeaderNames,
+            Collection<String> redactedParameterNames) {
+        this.redactedHeaderNames = toLowerCase(redactedHeaderNames);
+        this.redactedParameterNames = toLowerCase(redactedParameterNames);
+    }
+
+    @Override
+    public TrafficRecord filter(TrafficRecord record) {
+        Request request = record.getRequest();
+        Request redactedRequest = Request.newBuilder().setUrl(redactUrl(request.getUrl()))
+                .setMethod(request.getMethod()).setHeaders(redact(request.getHeaders(), redactedHeaderNames))
+                .setParameters(redact(request.getParameters(), redactedParameterNames)).build();
+
+        Response response = record.getResponse();
+        Response redactedResponse = null;
+        if (null != response) {
+            redactedResponse = Response.newBuilder().setRequest(redactedRequest).setStatus(response.getStatus())
+                    .setContentType(response.getContentType()).setContentLength(response.getContentLength())
+                    .setHeaders(redact(response.getHeaders(), redactedHeaderNames))
+                    .setCookies(redactCookies(response.getCookies())).setContent(response.getContent())
+                    .setLocale(response.getLocale()).build();
+        }
+
+        return new TrafficRecord(record.getStartTimeMillis(), record.getDurationNanos(), redactedRequest,
+                redactedResponse, record.getErrorMessage());
+    }
+
+    private Map<String, List<String>> redact(Map<String, List<String>> values, Set<String> redactedNames) {
+        if ((null == values) || redactedNames.isEmpty()) {
+            return values;
+        }
+
+        Map<String, List<String>> redactedValues = new LinkedHashMap<String, List<String>>();
+        for (Map.Entry<String, List<String>> value : values.entrySet()) {
+            if (!redactedNames.contains(value.getKey().toLowerCase(Locale.ROOT))) {
+                redactedValues.put(value.getKey(), value.getValue());
+            }
+        }
+
+        return redactedValues;
+    }
+
+    /**
+     * Drops the cookies parsed from the response along with the Set-Cookie header they came from.
+     */
+    private Map<String, Cookie> redactCookies(Map<String, Cookie> cookies) {
+        return redactedHeaderNames.contains("set-cookie") ? new HashMap<String, Cookie>() : cookies;
+    }
+
+    private String redactUrl(String url) {
+        if (redactedParameterNames.isEmpty()) {
+            return url;
+        }
+
+        String rawQuery = URI.create(url).getRawQuery();
+        if (null == rawQuery) {
+            return url;
+        }
+
+        StringBuilder redactedQuery = new StringBuilder();
+        for (String parameter : rawQuery.split("&")) {
+            int equalsIndex = parameter.indexOf('=');
+            String rawName = (equalsIndex < 0) ? parameter : parameter.substring(0, equalsIndex);
+            if (!redactedParameterNames.contains(decode(rawName).toLowerCase(Locale.ROOT))) {
+                if (redactedQuery.length() > 0) {
+                    redactedQuery.append('&');
+                }
+                redactedQuery.append(parameter);
+            }
+        }
+
+        int queryIndex = url.indexOf('?');
+        int fragmentIndex = url.indexOf('#', queryIndex);
+        String fragment = (fragmentIndex < 0) ? "" : url.substring(fragmentIndex);
+
+        return url.substring(0, queryIndex) + ((redactedQuery.length() > 0) ? "?" + redactedQuery : "") + fragment;
+    }
+
+    private static String decode(String rawName) {
+        try {
+            return URLDecoder.decode(rawName, "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return rawName;
+        }
+    }
+
+    private static Set<String> toLowerCase(Collection<String> names) {
+        Set<String> lowerCaseNames = new HashSet<String>();
+        for (String name : names) {
+            lowerCaseNames.add(name.toLowerCase(Locale.ROOT));
+        }
+
+        return lowerCaseNames;
+    }
+
+}
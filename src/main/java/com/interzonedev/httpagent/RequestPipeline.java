@@ -0,0 +1,326 @@
+package com.interzonedev.httpagent;
+
+import com.interzonedev.httpcore.HttpException;
+import com.interzonedev.httpcore.Request;
+import com.interzonedev.httpcore.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Performs a stream of requests with a {@link RequestService} under {@link Flow} backpressure. Requests are pulled from
+ * the upstream {@link Flow.Publisher} only as the downstream {@link Flow.Subscriber} signals demand for responses, and
+ * never more than the configured maximum ahead of what has been delivered. The requests awaited from upstream, in
+ * flight and completed but not yet delivered therefore never exceed the smaller of the downstream demand and that
+ * maximum.
+ *
+ * Responses are delivered in completion order, not request order. The first failed request terminates the stream
+ * with {@link Flow.Subscriber#onError(Throwable)} and cancels the upstream subscription. On cancellation or error,
+ * requests already in flight run to completion and their responses are discarded.
+ */
+public class RequestPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestPipeline.class);
+
+    /**
+     * Placeholder upstream subscription left behind once the upstream subscription has been cancelled, so that an
+     * upstream subscription arriving late is cancelled too.
+     */
+    private static final Flow.Subscription CANCELLED = new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    private final RequestService requestService;
+
+    private final int maxInFlight;
+
+    private final ResponseSizeLimits responseSizeLimits;
+
+    /**
+     * Creates a {@link RequestPipeline} that uses the default response size limits of the {@link RequestService}.
+     *
+     * @param requestService The {@link RequestService} that performs the requests.
+     * @param maxInFlight The maximum number of requests that may be outstanding at once per subscription.
+     */
+    public RequestPipeline(RequestService requestService, int maxInFlight) {
+        this(requestService, maxInFlight, null);
+    }
+
+    /**
+     * Creates a {@link RequestPipeline}.
+     *
+     * @param requestService The {@link RequestService} that performs the requests.
+     * @param maxInFlight The maximum number of requests that may be outstanding at once per subscription.
+     * @param responseSizeLimits The {@link ResponseSizeLimits} to apply to every request. May be null to use the
+     *            defaults of the {@link RequestService}.
+     */
+    public RequestPipeline(RequestService requestService, int maxInFlight, ResponseSizeLimits responseSizeLimits) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("The maximum number of in flight requests must be positive");
+        }
+
+        this.requestService = requestService;
+        this.maxInFlight = maxInFlight;
+        this.responseSizeLimits = responseSizeLimits;
+    }
+
+    /**
+     * Gets a {@link Flow.Publisher} of the responses to the requests published by the specified
+     * {@link Flow.Publisher}. Each subscriber to the returned {@link Flow.Publisher} subscribes to the requests
+     * separately.
+     *
+     * @param requests The {@link Flow.Publisher} of the requests to perform.
+     *
+     * @return Returns a {@link Flow.Publisher} of the responses to the requests.
+     */
+    public Flow.Publisher<Response> doRequests(final Flow.Publisher<Request> requests) {
+        return new Flow.Publisher<Response>() {
+            @Override
+            public void subscribe(Flow.Subscriber<? super Response> subscriber) {
+                if (null == subscriber) {
+                    throw new NullPointerException("The subscriber must not be null");
+                }
+
+                PipelineSubscription pipelineSubscription = new PipelineSubscription(subscriber);
+                subscriber.onSubscribe(pipelineSubscription);
+                requests.subscribe(pipelineSubscription);
+            }
+        };
+    }
+
+    /**
+     * The downstream {@link Flow.Subscription} and upstream {@link Flow.Subscriber} of a single subscription. All
+     * signals to the downstream subscriber and all upstream demand are issued from {@link #drain()}, which only one
+     * thread runs at a time.
+     */
+    private class PipelineSubscription implements Flow.Subscription, Flow.Subscriber<Request> {
+
+        private final Flow.Subscriber<? super Response> subscriber;
+
+        private final AtomicReference<Flow.Subscription> upstream = new AtomicReference<Flow.Subscription>();
+
+        private final Queue<Response> completedResponses = new ConcurrentLinkedQueue<Response>();
+
+        private final AtomicInteger drainCount = new AtomicInteger();
+
+        /**
+         * Responses requested by the downstream subscriber and not yet delivered.
+         */
+        private final AtomicLong demand = new AtomicLong();
+
+        /**
+         * Requests asked of the upstream publisher and not yet received.
+         */
+        private final AtomicLong awaitingUpstream = new AtomicLong();
+
+        /**
+         * Requests received from upstream whose responses have not yet been delivered.
+         */
+        private final AtomicLong inFlight = new AtomicLong();
+
+        private final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+        private volatile boolean upstreamCompleted;
+
+        private volatile boolean cancelled;
+
+        /**
+         * Set once the subscription has terminated, after which responses still completing are dropped.
+         */
+        private volatile boolean terminated;
+
+        private PipelineSubscription(Flow.Subscriber<? super Response> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0L) {
+                error.compareAndSet(null, new IllegalArgumentException("Requested " + n
+                        + " responses, the number of responses requested must be positive"));
+            } else {
+                long currentDemand;
+                long newDemand;
+                do {
+                    currentDemand = demand.get();
+                    newDemand = currentDemand + n;
+                    if (newDemand < 0L) {
+                        newDemand = Long.MAX_VALUE;
+                    }
+                } while (!demand.compareAndSet(currentDemand, newDemand));
+            }
+
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (!upstream.compareAndSet(null, subscription)) {
+                subscription.cancel();
+                return;
+            }
+
+            drain();
+        }
+
+        @Override
+        public void onNext(final Request request) {
+            if (null == request) {
+                throw new NullPointerException("The request must not be null");
+            }
+
+            // Counted in flight before it stops being awaited so a concurrent drain never under counts.
+            inFlight.incrementAndGet();
+            awaitingUpstream.decrementAndGet();
+
+            if (cancelled || (null != error.get())) {
+                return;
+            }
+
+            log.debug("onNext: Sending request " + request);
+
+            try {
+                requestService.doRequest(request, responseSizeLimits, new ResponseCallback() {
+                    @Override
+                    public void completed(Response response) {
+                        if (terminated) {
+                            return;
+                        }
+
+                        completedResponses.offer(response);
+
+                        // Termination may have cleared the queue just before the offer.
+                        if (terminated) {
+                            completedResponses.clear();
+                            return;
+                        }
+
+                        drain();
+                    }
+
+                    @Override
+                    public void failed(Throwable t) {
+                        log.debug("failed: Request failed - " + request, t);
+                        error.compareAndSet(null, t);
+                        drain();
+                    }
+                });
+            } catch (HttpException he) {
+                log.debug("onNext: Error sending request " + request, he);
+                error.compareAndSet(null, he);
+                drain();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error.compareAndSet(null, t);
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            upstreamCompleted = true;
+            drain();
+        }
+
+        private void drain() {
+            if (0 != drainCount.getAndIncrement()) {
+                return;
+            }
+
+            int missed = 1;
+            do {
+                if (drainOnce()) {
+                    terminated = true;
+                    completedResponses.clear();
+                    return;
+                }
+                missed = drainCount.addAndGet(-missed);
+            } while (0 != missed);
+        }
+
+        /**
+         * Delivers completed responses and terminal signals and requests more from upstream.
+         *
+         * @return Returns true if the subscription has terminated. The drain count is then never released so no
+         *         further signals reach the downstream subscriber.
+         */
+        private boolean drainOnce() {
+            if (cancelled) {
+                cancelUpstream();
+                return true;
+            }
+
+            Throwable t = error.get();
+            if (null != t) {
+                cancelUpstream();
+                subscriber.onError(t);
+                return true;
+            }
+
+            while (demand.get() > 0L) {
+                Response response = completedResponses.poll();
+                if (null == response) {
+                    break;
+                }
+
+                demand.decrementAndGet();
+                inFlight.decrementAndGet();
+                subscriber.onNext(response);
+
+                if (cancelled) {
+                    cancelUpstream();
+                    return true;
+                }
+            }
+
+            if (upstreamCompleted) {
+                if (0L == inFlight.get()) {
+                    subscriber.onComplete();
+                    return true;
+                }
+                return false;
+            }
+
+            Flow.Subscription subscription = upstream.get();
+            if (null != subscription) {
+                long outstanding = awaitingUpstream.get() + inFlight.get();
+                long toRequest = Math.min(maxInFlight, demand.get()) - outstanding;
+                if (toRequest > 0L) {
+                    awaitingUpstream.addAndGet(toRequest);
+                    subscription.request(toRequest);
+                }
+            }
+
+            return false;
+        }
+
+        private void cancelUpstream() {
+            Flow.Subscription subscription = upstream.getAndSet(CANCELLED);
+            if ((null != subscription) && (CANCELLED != subscription)) {
+                subscription.cancel();
+            }
+        }
+
+    }
+
+}
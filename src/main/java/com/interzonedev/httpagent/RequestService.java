@@ -25,6 +25,29 @@ public interface RequestService {
      */
     Response doSynchronousRequest(Request request) throws HttpException;
 
+    /**
+     * Performs a synchronous HTTP request using the url, method, headers and parameters in the specified
+     * {@link Request} value object, aborting the response if it crosses the specified {@link ResponseSizeLimits}.
+     *
+     * The default implementation ignores the limits and performs the request with
+     * {@link #doSynchronousRequest(Request)}. Implementations that enforce limits override it.
+     *
+     * @param request The {@link Request} value object that contains the components of the HTTP request to be made.
+     * @param responseSizeLimits The {@link ResponseSizeLimits} for this request only. May be null, in which case the
+     *            default limits of the implementation apply.
+     *
+     * @return Returns a {@link Response} value object that contains the components, including status and body, of the
+     *         HTTP response to the HTTP request performed by this method.
+     *
+     * @throws ResponseSizeLimitExceededException Thrown if the response crosses the applicable
+     *             {@link ResponseSizeLimits}.
+     * @throws HttpException Thrown if there is an error performing the HTTP request.
+     */
+    default Response doSynchronousRequest(Request request, ResponseSizeLimits responseSizeLimits)
+            throws HttpException {
+        return doSynchronousRequest(request);
+    }
+
     /**
      * Performs an asynchronous HTTP request using the url, method, headers and parameters in the specified
      * {@link Request} value object.
@@ -38,4 +61,55 @@ public interface RequestService {
      */
     Future<Response> doRequest(Request request) throws HttpException;
 
+    /**
+     * Performs an asynchronous HTTP request using the url, method, headers and parameters in the specified
+     * {@link Request} value object, aborting the response if it crosses the specified {@link ResponseSizeLimits}.
+     *
+     * The default implementation ignores the limits and performs the request with {@link #doRequest(Request)}.
+     * Implementations that enforce limits override it.
+     *
+     * @param request The {@link Request} value object that contains the components of the HTTP request to be made.
+     * @param responseSizeLimits The {@link ResponseSizeLimits} for this request only. May be null, in which case the
+     *            default limits of the implementation apply.
+     *
+     * @return Returns a {@link Future} that wraps a {@link Response} value object that contains the components,
+     *         including status and body, of the HTTP response to the HTTP request performed by this method. If the
+     *         response crosses the applicable {@link ResponseSizeLimits} the {@link Future} fails with a
+     *         {@link ResponseSizeLimitExceededException} as the cause.
+     *
+     * @throws HttpException Thrown if there is an error performing the HTTP request.
+     */
+    default Future<Response> doRequest(Request request, ResponseSizeLimits responseSizeLimits) throws HttpException {
+        return doRequest(request);
+    }
+
+    /**
+     * Performs an asynchronous HTTP request using the url, method, headers and parameters in the specified
+     * {@link Request} value object and notifies the specified {@link ResponseCallback} when it completes, so callers
+     * can react to the response without blocking on the returned {@link Future}.
+     *
+     * The default implementation performs the request with {@link #doRequest(Request, ResponseSizeLimits)}. If the
+     * returned {@link Future} is not a {@link java.util.concurrent.CompletionStage}, a background thread blocks on it
+     * to notify the callback, so every request in flight holds a thread. The threads are shared by all services and
+     * capped at 64; beyond that, callbacks are delayed until earlier requests complete. Implementations that can notify
+     * the callback from their own completion handling override it.
+     *
+     * @param request The {@link Request} value object that contains the components of the HTTP request to be made.
+     * @param responseSizeLimits The {@link ResponseSizeLimits} for this request only. May be null, in which case the
+     *            default limits of the implementation apply.
+     * @param responseCallback The {@link ResponseCallback} to notify when the request completes, fails or is
+     *            cancelled. Not notified if this method throws.
+     *
+     * @return Returns a {@link Future} that wraps a {@link Response} value object that contains the components,
+     *         including status and body, of the HTTP response to the HTTP request performed by this method.
+     *
+     * @throws HttpException Thrown if there is an error performing the HTTP request.
+     */
+    default Future<Response> doRequest(Request request, ResponseSizeLimits responseSizeLimits,
+            ResponseCallback responseCallback) throws HttpException {
+        Future<Response> responseFuture = doRequest(request, responseSizeLimits);
+        ResponseCallbacks.notifyWhenDone(responseFuture, responseCallback);
+        return responseFuture;
+    }
+
 }
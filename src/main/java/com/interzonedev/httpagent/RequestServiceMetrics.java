@@ -0,0 +1,58 @@
+package com.interzonedev.httpagent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters maintained by a {@link RequestService} implementation. All counters are cumulative for the life of the
+ * service and safe to read from any thread.
+ */
+public class RequestServiceMetrics {
+
+    private final LongAdder responseHeaderSizeLimitExceededCount = new LongAdder();
+
+    private final LongAdder responseBodySizeLimitExceededCount = new LongAdder();
+
+    /**
+     * Counts a response that was aborted for crossing its {@link ResponseSizeLimits}.
+     *
+     * @param exception The {@link ResponseSizeLimitExceededException} describing the aborted response.
+     */
+    void responseSizeLimitExceeded(ResponseSizeLimitExceededException exception) {
+        switch (exception.getPart()) {
+            case HEADERS:
+                responseHeaderSizeLimitExceededCount.increment();
+                break;
+            case BODY:
+                responseBodySizeLimitExceededCount.increment();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Gets the number of responses aborted because their headers crossed the header size limit.
+     *
+     * @return Returns the number of responses aborted because their headers crossed the header size limit.
+     */
+    public long getResponseHeaderSizeLimitExceededCount() {
+        return responseHeaderSizeLimitExceededCount.sum();
+    }
+
+    /**
+     * Gets the number of responses aborted because their body crossed the body size limit.
+     *
+     * @return Returns the number of responses aborted because their body crossed the body size limit.
+     */
+    public long getResponseBodySizeLimitExceededCount() {
+        return responseBodySizeLimitExceededCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "RequestServiceMetrics [responseHeaderSizeLimitExceededCount="
+                + getResponseHeaderSizeLimitExceededCount() + ", responseBodySizeLimitExceededCount="
+                + getResponseBodySizeLimitExceededCount() + "]";
+    }
+
+}
@@ -0,0 +1,304 @@
+package com.interzonedev.httpagent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of size classed {@link ByteBuffer}s used to read response bodies without allocating a new buffer for every
+ * response. Size classes are powers of two between the minimum and maximum buffer sizes; requests for more than the
+ * maximum buffer size are served with unpooled buffers that are left to the garbage collector on release.
+ * <p>
+ * When leak detection is enabled every {@link PooledBuffer} handed out is tracked with a phantom reference. A buffer
+ * whose {@link PooledBuffer} is garbage collected without having been released is logged, counted and dropped. It is
+ * never returned to the pool, because views of its contents obtained before the leak may still be in use.
+ */
+public class ResponseBufferPool {
+
+    private static final Logger log = LoggerFactory.getLogger(ResponseBufferPool.class);
+
+    public static final int DEFAULT_MIN_BUFFER_SIZE = 4 * 1024;
+
+    public static final int DEFAULT_MAX_BUFFER_SIZE = 1024 * 1024;
+
+    public static final int DEFAULT_MAX_BUFFERS_PER_SIZE_CLASS = 64;
+
+    private final int minBufferSizeShift;
+
+    private final int maxBufferSize;
+
+    private final int maxBuffersPerSizeClass;
+
+    private final boolean direct;
+
+    private final boolean leakDetection;
+
+    private final SizeClass[] sizeClasses;
+
+    private final ThreadLocal<byte[]> transferBuffers = new ThreadLocal<byte[]>();
+
+    private final ReferenceQueue<PooledBuffer> leakQueue = new ReferenceQueue<PooledBuffer>();
+
+    private final Set<LeakTracker> leakTrackers = Collections
+            .newSetFromMap(new ConcurrentHashMap<LeakTracker, Boolean>());
+
+    private final LongAdder allocatedBufferCount = new LongAdder();
+
+    private final LongAdder reusedBufferCount = new LongAdder();
+
+    private final LongAdder leakedBufferCount = new LongAdder();
+
+    /**
+     * Creates a {@link ResponseBufferPool} of heap buffers with the default size classes and leak detection enabled.
+     */
+    public ResponseBufferPool() {
+        this(DEFAULT_MIN_BUFFER_SIZE, DEFAULT_MAX_BUFFER_SIZE, DEFAULT_MAX_BUFFERS_PER_SIZE_CLASS, false, true);
+    }
+
+    /**
+     * Creates a {@link ResponseBufferPool}.
+     *
+     * @param minBufferSize The size in bytes of the smallest size class. Rounded up to a power of two.
+     * @param maxBufferSize The size in bytes of the largest size class. Rounded up to a power of two.
+     * @param maxBuffersPerSizeClass The maximum number of idle buffers kept for each size class.
+     * @param direct Whether to allocate direct rather than heap buffers.
+     * @param leakDetection Whether to track buffers and report those that are never released.
+     */
+    public ResponseBufferPool(int minBufferSize, int maxBufferSize, int maxBuffersPerSizeClass, boolean direct,
+            boolean leakDetection) {
+        if ((minBufferSize < 1) || (maxBufferSize < minBufferSize) || (maxBufferSize > (1 << 30))) {
+            throw new IllegalArgumentException("Invalid buffer sizes: minBufferSize = " + minBufferSize
+                    + ", maxBufferSize = " + maxBufferSize);
+        }
+
+        this.minBufferSizeShift = ceilingShift(minBufferSize);
+        this.maxBufferSize = 1 << ceilingShift(maxBufferSize);
+        this.maxBuffersPerSizeClass = maxBuffersPerSizeClass;
+        this.direct = direct;
+        this.leakDetection = leakDetection;
+
+        this.sizeClasses = new SizeClass[ceilingShift(maxBufferSize) - minBufferSizeShift + 1];
+        for (int i = 0; i < sizeClasses.length; i++) {
+            sizeClasses[i] = new SizeClass(1 << (minBufferSizeShift + i));
+        }
+    }
+
+    /**
+     * Acquires a {@link PooledBuffer} with room for at least the specified number of bytes. The returned
+     * {@link PooledBuffer} must be closed once its contents are no longer needed.
+     *
+     * @param minCapacity The number of bytes the buffer must be able to hold without growing.
+     *
+     * @return Returns an empty {@link PooledBuffer}.
+     */
+    public PooledBuffer acquire(int minCapacity) {
+        reportLeakedBuffers();
+
+        BufferSlot slot = new BufferSlot(allocate(minCapacity));
+        PooledBuffer pooledBuffer = new PooledBuffer(this, slot);
+
+        if (leakDetection) {
+            LeakTracker leakTracker = new LeakTracker(pooledBuffer, slot, leakQueue);
+            slot.leakTracker = leakTracker;
+            leakTrackers.add(leakTracker);
+        }
+
+        return pooledBuffer;
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * Gets the number of buffers allocated because no idle buffer of the needed size class was available.
+     *
+     * @return Returns the number of buffers allocated by this pool.
+     */
+    public long getAllocatedBufferCount() {
+        return allocatedBufferCount.sum();
+    }
+
+    /**
+     * Gets the number of times an idle buffer was reused.
+     *
+     * @return Returns the number of times an idle buffer was reused.
+     */
+    public long getReusedBufferCount() {
+        return reusedBufferCount.sum();
+    }
+
+    /**
+     * Gets the number of buffers whose {@link PooledBuffer} was garbage collected without having been released. Only
+     * maintained when leak detection is enabled.
+     *
+     * @return Returns the number of leaked buffers detected.
+     */
+    public long getLeakedBufferCount() {
+        return leakedBufferCount.sum();
+    }
+
+    /**
+     * Takes an idle buffer of the size class that fits the specified capacity, or allocates one.
+     */
+    ByteBuffer allocate(int minCapacity) {
+        SizeClass sizeClass = getSizeClass(minCapacity);
+
+        if (null == sizeClass) {
+            allocatedBufferCount.increment();
+            return newBuffer(minCapacity);
+        }
+
+        ByteBuffer buffer = sizeClass.idleBuffers.poll();
+        if (null != buffer) {
+            sizeClass.idleCount.decrementAndGet();
+            reusedBufferCount.increment();
+            buffer.clear();
+            return buffer;
+        }
+
+        allocatedBufferCount.increment();
+        return newBuffer(sizeClass.bufferSize);
+    }
+
+    /**
+     * Returns the specified buffer to the idle buffers of its size class if it belongs to one that is not full.
+     */
+    void recycle(ByteBuffer buffer) {
+        SizeClass sizeClass = getSizeClass(buffer.capacity());
+
+        if ((null == sizeClass) || (sizeClass.bufferSize != buffer.capacity())) {
+            return;
+        }
+
+        if (sizeClass.idleCount.incrementAndGet() > maxBuffersPerSizeClass) {
+            sizeClass.idleCount.decrementAndGet();
+            return;
+        }
+
+        sizeClass.idleBuffers.offer(buffer);
+    }
+
+    /**
+     * Releases the buffer held by the specified {@link BufferSlot} exactly once.
+     */
+    void release(BufferSlot slot) {
+        if (!slot.released.compareAndSet(false, true)) {
+            return;
+        }
+
+        LeakTracker leakTracker = slot.leakTracker;
+        if (null != leakTracker) {
+            leakTrackers.remove(leakTracker);
+            leakTracker.clear();
+        }
+
+        recycle(slot.buffer);
+        slot.buffer = null;
+    }
+
+    /**
+     * Gets a per thread scratch array used to move bytes from streams into direct buffers.
+     */
+    byte[] getTransferBuffer() {
+        byte[] transferBuffer = transferBuffers.get();
+        if (null == transferBuffer) {
+            transferBuffer = new byte[1 << minBufferSizeShift];
+            transferBuffers.set(transferBuffer);
+        }
+
+        return transferBuffer;
+    }
+
+    private void reportLeakedBuffers() {
+        if (!leakDetection) {
+            return;
+        }
+
+        Reference<? extends PooledBuffer> reference;
+        while (null != (reference = leakQueue.poll())) {
+            LeakTracker leakTracker = (LeakTracker) reference;
+            if (!leakTrackers.remove(leakTracker)) {
+                continue;
+            }
+
+            BufferSlot slot = leakTracker.slot;
+            if (slot.released.compareAndSet(false, true)) {
+                leakedBufferCount.increment();
+                log.error("reportLeakedBuffers: LEAK - PooledBuffer of " + slot.buffer.capacity()
+                        + " bytes was garbage collected without being released. Close every PooledResponse and "
+                        + "PooledBuffer once its contents are no longer needed.");
+                // Left to the garbage collector rather than recycled. A caller may still hold a view of the contents
+                // from PooledBuffer.getContent(), which would otherwise see the bytes of a later response.
+                slot.buffer = null;
+            }
+        }
+    }
+
+    private SizeClass getSizeClass(int capacity) {
+        if (capacity > maxBufferSize) {
+            return null;
+        }
+
+        int index = Math.max(0, ceilingShift(capacity) - minBufferSizeShift);
+
+        return sizeClasses[index];
+    }
+
+    private ByteBuffer newBuffer(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private static int ceilingShift(int value) {
+        return (value <= 1) ? 0 : 32 - Integer.numberOfLeadingZeros(value - 1);
+    }
+
+    private static class SizeClass {
+        private final int bufferSize;
+
+        private final ConcurrentLinkedQueue<ByteBuffer> idleBuffers = new ConcurrentLinkedQueue<ByteBuffer>();
+
+        private final AtomicInteger idleCount = new AtomicInteger();
+
+        private SizeClass(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+    }
+
+    /**
+     * Holds the buffer behind a {@link PooledBuffer}. Kept separate from the {@link PooledBuffer} so the buffer can
+     * still be reported after the {@link PooledBuffer} has been garbage collected.
+     */
+    static class BufferSlot {
+        volatile ByteBuffer buffer;
+
+        final AtomicBoolean released = new AtomicBoolean(false);
+
+        volatile LeakTracker leakTracker;
+
+        private BufferSlot(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    private static class LeakTracker extends PhantomReference<PooledBuffer> {
+        private final BufferSlot slot;
+
+        private LeakTracker(PooledBuffer pooledBuffer, BufferSlot slot, ReferenceQueue<PooledBuffer> leakQueue) {
+            super(pooledBuffer, leakQueue);
+            this.slot = slot;
+        }
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.interzonedev.httpagent;
+
+import com.interzonedev.httpcore.Response;
+
+/**
+ * Callback notified when an asynchronous HTTP request performed by a {@link RequestService} completes. Exactly one of
+ * the methods is called for each request. Callbacks may run on I/O or worker threads of the {@link RequestService}
+ * and must not block.
+ */
+public interface ResponseCallback {
+
+    /**
+     * Called when the request completes with a {@link Response}.
+     *
+     * @param response The {@link Response} value object for the completed request.
+     */
+    void completed(Response response);
+
+    /**
+     * Called when the request fails or is cancelled.
+     *
+     * @param t The cause of the failure. A {@link java.util.concurrent.CancellationException} if the request was
+     *            cancelled.
+     */
+    void failed(Throwable t);
+
+}
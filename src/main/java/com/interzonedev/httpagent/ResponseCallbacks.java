@@ -0,0 +1,160 @@
+package com.interzonedev.httpagent;
+
+import com.interzonedev.httpcore.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Helpers for notifying {@link ResponseCallback}s. Exceptions thrown by callbacks are logged and swallowed so they
+ * cannot disturb the thread that completed the request.
+ */
+final class ResponseCallbacks {
+
+    private static final Logger log = LoggerFactory.getLogger(ResponseCallbacks.class);
+
+    /**
+     * {@link Executor} that runs listeners on the thread that completes the future.
+     */
+    static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * The most threads that wait on futures at once.
+     */
+    static final int MAX_FUTURE_WAITERS = 64;
+
+    /**
+     * Daemon threads that wait on futures which offer no way to be notified of their completion, one future per thread.
+     * Once all of them are busy further futures queue until a thread is free, and idle threads exit after a minute.
+     */
+    private static final ThreadPoolExecutor FUTURE_WAITERS = new ThreadPoolExecutor(MAX_FUTURE_WAITERS,
+            MAX_FUTURE_WAITERS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger threadCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "httpagent-response-callback-"
+                            + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    static {
+        FUTURE_WAITERS.allowCoreThreadTimeOut(true);
+    }
+
+    private ResponseCallbacks() {
+    }
+
+    /**
+     * Notifies the specified {@link ResponseCallback} once the specified {@link Future} completes. A
+     * {@link CompletionStage} notifies the callback itself; any other {@link Future} ties up one of at most
+     * {@link #MAX_FUTURE_WAITERS} background threads until it completes. When all of them are busy the callback is
+     * notified late, once a thread is free and the future has completed.
+     *
+     * @param responseFuture The {@link Future} whose outcome to report.
+     * @param responseCallback The {@link ResponseCallback} to notify. May be null.
+     */
+    @SuppressWarnings("unchecked")
+    static void notifyWhenDone(final Future<Response> responseFuture, final ResponseCallback responseCallback) {
+        if (null == responseCallback) {
+            return;
+        }
+
+        if (responseFuture instanceof CompletionStage) {
+            ((CompletionStage<Response>) responseFuture).whenComplete(new BiConsumer<Response, Throwable>() {
+                @Override
+                public void accept(Response response, Throwable t) {
+                    notifyCompleted(responseFuture, responseCallback);
+                }
+            });
+            return;
+        }
+
+        FUTURE_WAITERS.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    responseFuture.get();
+                } catch (Exception e) {
+                    // Reported below.
+                }
+                notifyCompleted(responseFuture, responseCallback);
+            }
+        });
+    }
+
+    /**
+     * Notifies the specified {@link ResponseCallback} of the outcome of the specified completed {@link Future}.
+     *
+     * @param responseFuture The completed {@link Future}.
+     * @param responseCallback The {@link ResponseCallback} to notify. May be null.
+     */
+    static void notifyCompleted(Future<Response> responseFuture, ResponseCallback responseCallback) {
+        if (null == responseCallback) {
+            return;
+        }
+
+        Response response = null;
+        Throwable failure = null;
+        try {
+            response = responseFuture.get();
+        } catch (ExecutionException ee) {
+            failure = (null != ee.getCause()) ? ee.getCause() : ee;
+        } catch (CancellationException ce) {
+            failure = ce;
+        } catch (InterruptedException ie) {
+            // Not reachable for a completed future.
+            Thread.currentThread().interrupt();
+            failure = ie;
+        }
+
+        if (null == failure) {
+            completed(responseCallback, response);
+        } else {
+            failed(responseCallback, failure);
+        }
+    }
+
+    static void completed(ResponseCallback responseCallback, Response response) {
+        if (null == responseCallback) {
+            return;
+        }
+
+        try {
+            responseCallback.completed(response);
+        } catch (Throwable t) {
+            log.error("completed: Error in response callback", t);
+        }
+    }
+
+    static void failed(ResponseCallback responseCallback, Throwable failure) {
+        if (null == responseCallback) {
+            return;
+        }
+
+        try {
+            responseCallback.failed(failure);
+        } catch (Throwable t) {
+            log.error("failed: Error in response callback", t);
+        }
+    }
+
+}
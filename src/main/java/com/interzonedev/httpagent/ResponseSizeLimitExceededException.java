@@ -0,0 +1,60 @@
+package com.interzonedev.httpagent;
+
+import com.interzonedev.httpcore.HttpException;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Thrown when an HTTP response is aborted because its headers or body crossed the configured
+ * {@link ResponseSizeLimits}. For asynchronous requests it is the cause of the {@link ExecutionException} thrown by the
+ * returned {@link Future}.
+ */
+public class ResponseSizeLimitExceededException extends HttpException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The part of the response that crossed its limit.
+     */
+    public enum Part {
+        HEADERS, BODY
+    }
+
+    private final Part part;
+
+    private final long limit;
+
+    private final long size;
+
+    public ResponseSizeLimitExceededException(String message, Part part, long limit, long size) {
+        super(message);
+        this.part = part;
+        this.limit = limit;
+        this.size = size;
+    }
+
+    public Part getPart() {
+        return part;
+    }
+
+    /**
+     * Gets the limit in bytes that was crossed.
+     *
+     * @return Returns the limit in bytes that was crossed.
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Gets the size in bytes that was declared or read when the response was aborted. This is a lower bound on the
+     * actual size of the offending part.
+     *
+     * @return Returns the size in bytes that was declared or read when the response was aborted.
+     */
+    public long getSize() {
+        return size;
+    }
+
+}
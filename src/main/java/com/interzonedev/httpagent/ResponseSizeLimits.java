@@ -0,0 +1,57 @@
+package com.interzonedev.httpagent;
+
+/**
+ * Immutable value object holding the maximum sizes in bytes of the headers and body of an HTTP response. Responses
+ * that cross either limit are aborted while they are being read and fail with a
+ * {@link ResponseSizeLimitExceededException}. A limit of zero or less means the corresponding part is not limited.
+ *
+ * Body limits are enforced as the body is read. How early a header limit takes effect depends on the
+ * {@link RequestService}: where the HTTP client parses all headers before handing them over, the total header size can
+ * only be checked once parsing is done.
+ */
+public final class ResponseSizeLimits {
+
+    /**
+     * {@link ResponseSizeLimits} that do not limit either the headers or the body.
+     */
+    public static final ResponseSizeLimits UNLIMITED = new ResponseSizeLimits(0L, 0L);
+
+    private final long maxHeaderSize;
+
+    private final long maxBodySize;
+
+    /**
+     * Creates a {@link ResponseSizeLimits}.
+     *
+     * @param maxHeaderSize The maximum total size in bytes of the response status line and headers. Zero or less for
+     *            no limit.
+     * @param maxBodySize The maximum size in bytes of the response body as received on the wire. Zero or less for no
+     *            limit.
+     */
+    public ResponseSizeLimits(long maxHeaderSize, long maxBodySize) {
+        this.maxHeaderSize = maxHeaderSize;
+        this.maxBodySize = maxBodySize;
+    }
+
+    public long getMaxHeaderSize() {
+        return maxHeaderSize;
+    }
+
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    public boolean isHeaderSizeLimited() {
+        return maxHeaderSize > 0L;
+    }
+
+    public boolean isBodySizeLimited() {
+        return maxBodySize > 0L;
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseSizeLimits [maxHeaderSize=" + maxHeaderSize + ", maxBodySize=" + maxBodySize + "]";
+    }
+
+}
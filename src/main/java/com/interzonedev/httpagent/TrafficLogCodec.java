@@ -0,0 +1,226 @@
+package com.interzonedev.httpagent;
+
+import com.interzonedev.httpcore.Method;
+import com.interzonedev.httpcore.Request;
+import com.interzonedev.httpcore.Response;
+
+import javax.servlet.http.Cookie;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary encoding of {@link TrafficRecord}s in traffic log segments.
+ * <p>
+ * A segment starts with a {@link #SEGMENT_MAGIC} and {@link #FORMAT_VERSION} header followed by frames of a four byte
+ * payload length and the payload. A zero length marks the end of the written part of the segment. Strings are written
+ * as a four byte length, -1 for null, followed by UTF-8 bytes; maps of string lists as a four byte entry count, -1 for
+ * null, followed by each name and its values.
+ */
+final class TrafficLogCodec {
+
+    static final int SEGMENT_MAGIC = 0x48415431;
+
+    static final int FORMAT_VERSION = 1;
+
+    static final int SEGMENT_HEADER_SIZE = 8;
+
+    static final int FRAME_HEADER_SIZE = 4;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte OUTCOME_RESPONSE = 0;
+
+    private static final byte OUTCOME_ERROR = 1;
+
+    private TrafficLogCodec() {
+    }
+
+    /**
+     * Growable scratch buffer reused by a writing thread to encode records.
+     */
+    static class EncodingBuffer {
+        private byte[] bytes = new byte[8 * 1024];
+
+        private int length = 0;
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        int getLength() {
+            return length;
+        }
+
+        private void reset() {
+            length = 0;
+        }
+
+        private void ensureRemaining(int count) {
+            if (length + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + count));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensureRemaining(1);
+            bytes[length++] = (byte) value;
+        }
+
+        private void writeInt(int value) {
+            ensureRemaining(4);
+            bytes[length++] = (byte) (value >>> 24);
+            bytes[length++] = (byte) (value >>> 16);
+            bytes[length++] = (byte) (value >>> 8);
+            bytes[length++] = (byte) value;
+        }
+
+        private void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        private void writeString(String value) {
+            if (null == value) {
+                writeInt(-1);
+                return;
+            }
+
+            byte[] encoded = value.getBytes(UTF_8);
+            writeInt(encoded.length);
+            ensureRemaining(encoded.length);
+            System.arraycopy(encoded, 0, bytes, length, encoded.length);
+            length += encoded.length;
+        }
+
+        private void writeStringListMap(Map<String, List<String>> values) {
+            if (null == values) {
+                writeInt(-1);
+                return;
+            }
+
+            writeInt(values.size());
+            for (Map.Entry<String, List<String>> entry : values.entrySet()) {
+                writeString(entry.getKey());
+                List<String> entryValues = entry.getValue();
+                if (null == entryValues) {
+                    writeInt(0);
+                    continue;
+                }
+                writeInt(entryValues.size());
+                for (String entryValue : entryValues) {
+                    writeString(entryValue);
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes the specified {@link TrafficRecord} into the specified {@link EncodingBuffer}, replacing its contents.
+     */
+    static void encode(TrafficRecord record, EncodingBuffer buffer) {
+        buffer.reset();
+
+        buffer.writeLong(record.getStartTimeMillis());
+        buffer.writeLong(record.getDurationNanos());
+
+        Request request = record.getRequest();
+        buffer.writeString(request.getMethod().name());
+        buffer.writeString(request.getUrl());
+        buffer.writeStringListMap(request.getHeaders());
+        buffer.writeStringListMap(request.getParameters());
+
+        Response response = record.getResponse();
+        if (null == response) {
+            buffer.writeByte(OUTCOME_ERROR);
+            buffer.writeString(record.getErrorMessage());
+            return;
+        }
+
+        buffer.writeByte(OUTCOME_RESPONSE);
+        buffer.writeInt(response.getStatus());
+        buffer.writeString(response.getContentType());
+        buffer.writeLong(response.getContentLength());
+        buffer.writeStringListMap(response.getHeaders());
+        buffer.writeString(response.getContent());
+    }
+
+    /**
+     * Decodes a {@link TrafficRecord} from the remaining bytes of the specified payload.
+     */
+    static TrafficRecord decode(ByteBuffer payload) {
+        long startTimeMillis = payload.getLong();
+        long durationNanos = payload.getLong();
+
+        Method method = Method.valueOf(readString(payload));
+        String url = readString(payload);
+        Map<String, List<String>> requestHeaders = readStringListMap(payload);
+        Map<String, List<String>> requestParameters = readStringListMap(payload);
+
+        Request request = Request.newBuilder().setUrl(url).setMethod(method).setHeaders(requestHeaders)
+                .setParameters(requestParameters).build();
+
+        byte outcome = payload.get();
+        if (OUTCOME_ERROR == outcome) {
+            return new TrafficRecord(startTimeMillis, durationNanos, request, null, readString(payload));
+        }
+
+        int status = payload.getInt();
+        String contentType = readString(payload);
+        long contentLength = payload.getLong();
+        Map<String, List<String>> responseHeaders = readStringListMap(payload);
+        String content = readString(payload);
+
+        // Cookies are carried by the recorded Set-Cookie headers.
+        Response response = Response.newBuilder().setRequest(request).setStatus(status).setContentType(contentType)
+                .setContentLength(contentLength).setHeaders(responseHeaders)
+                .setCookies(new HashMap<String, Cookie>()).setContent(content).setLocale(null).build();
+
+        return new TrafficRecord(startTimeMillis, durationNanos, request, response, null);
+    }
+
+    private static String readString(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length < 0) {
+            return null;
+        }
+
+        String value;
+        if (payload.hasArray()) {
+            value = new String(payload.array(), payload.arrayOffset() + payload.position(), length, UTF_8);
+        } else {
+            byte[] encoded = new byte[length];
+            payload.duplicate().get(encoded);
+            value = new String(encoded, UTF_8);
+        }
+        payload.position(payload.position() + length);
+
+        return value;
+    }
+
+    private static Map<String, List<String>> readStringListMap(ByteBuffer payload) {
+        int size = payload.getInt();
+        if (size < 0) {
+            return null;
+        }
+
+        Map<String, List<String>> values = new LinkedHashMap<String, List<String>>();
+        for (int i = 0; i < size; i++) {
+            String name = readString(payload);
+            int valueCount = payload.getInt();
+            List<String> entryValues = new ArrayList<String>(valueCount);
+            for (int j = 0; j < valueCount; j++) {
+                entryValues.add(readString(payload));
+            }
+            values.put(name, entryValues);
+        }
+
+        return values;
+    }
+
+}
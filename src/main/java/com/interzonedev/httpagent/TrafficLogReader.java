@@ -0,0 +1,137 @@
+package com.interzonedev.httpagent;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the {@link TrafficRecord}s written by a {@link TrafficLogWriter} back in the order they were appended, one
+ * memory-mapped segment at a time.
+ */
+public class TrafficLogReader implements Closeable {
+
+    private final List<File> segmentFiles;
+
+    private int nextSegmentIndex = 0;
+
+    private ByteBuffer currentSegment;
+
+    /**
+     * Creates a {@link TrafficLogReader} for the segment files in the specified directory.
+     *
+     * @param directory The directory holding the segment files.
+     *
+     * @throws IOException Thrown if the directory cannot be read.
+     */
+    public TrafficLogReader(File directory) throws IOException {
+        if (!directory.isDirectory()) {
+            throw new IOException("Traffic log directory does not exist: " + directory);
+        }
+
+        this.segmentFiles = listSegmentFiles(directory);
+    }
+
+    /**
+     * Reads the next {@link TrafficRecord}.
+     *
+     * @return Returns the next {@link TrafficRecord} or null if all records have been read.
+     *
+     * @throws IOException Thrown if a segment cannot be read, is not a traffic log segment or holds a corrupt record.
+     */
+    public TrafficRecord next() throws IOException {
+        while (true) {
+            if (null == currentSegment) {
+                if (nextSegmentIndex >= segmentFiles.size()) {
+                    return null;
+                }
+                currentSegment = mapSegment(segmentFiles.get(nextSegmentIndex++));
+            }
+
+            if (currentSegment.remaining() >= TrafficLogCodec.FRAME_HEADER_SIZE) {
+                int payloadLength = currentSegment.getInt();
+                if ((payloadLength < 0) || (payloadLength > currentSegment.remaining())) {
+                    throw new IOException("Corrupt traffic log frame of " + payloadLength + " bytes at offset "
+                            + (currentSegment.position() - TrafficLogCodec.FRAME_HEADER_SIZE) + " in "
+                            + segmentFiles.get(nextSegmentIndex - 1));
+                }
+                if (payloadLength > 0) {
+                    ByteBuffer payload = currentSegment.slice();
+                    payload.limit(payloadLength);
+                    currentSegment.position(currentSegment.position() + payloadLength);
+                    try {
+                        return TrafficLogCodec.decode(payload);
+                    } catch (RuntimeException re) {
+                        throw new IOException("Corrupt traffic log record in " + segmentFiles.get(nextSegmentIndex - 1),
+                                re);
+                    }
+                }
+            }
+
+            // A zero length or the end of the segment means the rest of the segment was never written. The writer
+            // finishes every frame it reserved before closing a segment, so only a crash leaves a gap before later
+            // frames.
+            currentSegment = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        currentSegment = null;
+        nextSegmentIndex = segmentFiles.size();
+    }
+
+    private ByteBuffer mapSegment(File segmentFile) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(segmentFile, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            ByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if ((segment.remaining() < TrafficLogCodec.SEGMENT_HEADER_SIZE)
+                    || (TrafficLogCodec.SEGMENT_MAGIC != segment.getInt())) {
+                throw new IOException("Not a traffic log segment: " + segmentFile);
+            }
+
+            int formatVersion = segment.getInt();
+            if (TrafficLogCodec.FORMAT_VERSION != formatVersion) {
+                throw new IOException("Unsupported traffic log format version " + formatVersion + " in "
+                        + segmentFile);
+            }
+
+            return segment;
+        } finally {
+            // The mapping stays valid after the file is closed.
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Lists the segment files in the specified directory in the order they were written.
+     */
+    static List<File> listSegmentFiles(File directory) {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(TrafficLogWriter.SEGMENT_FILE_PREFIX)
+                        && name.endsWith(TrafficLogWriter.SEGMENT_FILE_SUFFIX);
+            }
+        });
+
+        if (null == files) {
+            return Collections.emptyList();
+        }
+
+        // Segment numbers are zero padded, so name order is write order.
+        Arrays.sort(files);
+
+        return new ArrayList<File>(Arrays.asList(files));
+    }
+
+}
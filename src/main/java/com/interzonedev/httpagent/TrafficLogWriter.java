@@ -0,0 +1,327 @@
+package com.interzonedev.httpagent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Appends {@link TrafficRecord}s to a directory of fixed size, memory-mapped, append-only segment files. Writers
+ * reserve space in the current segment with compare-and-set and copy their encoded record into the mapping, so
+ * concurrent appends do not block one another; only rolling over to a new segment takes a lock. Full segments are
+ * flushed to disk and closed on a background thread, so appending never waits for a segment to be written out.
+ */
+public class TrafficLogWriter implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(TrafficLogWriter.class);
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    static final String SEGMENT_FILE_PREFIX = "traffic-";
+
+    static final String SEGMENT_FILE_SUFFIX = ".seg";
+
+    private final File directory;
+
+    private final int segmentSize;
+
+    private final ThreadLocal<TrafficLogCodec.EncodingBuffer> encodingBuffers =
+            new ThreadLocal<TrafficLogCodec.EncodingBuffer>();
+
+    private final LongAdder recordedCount = new LongAdder();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private final ExecutorService segmentCloser = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "httpagent-traffic-log-closer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private volatile Segment currentSegment;
+
+    private volatile boolean closed = false;
+
+    private int nextSegmentIndex = 0;
+
+    /**
+     * Creates a {@link TrafficLogWriter} with segments of {@link #DEFAULT_SEGMENT_SIZE} bytes.
+     *
+     * @param directory The directory in which to create the segment files. Created if it does not exist.
+     *
+     * @throws IOException Thrown if the first segment cannot be created.
+     */
+    public TrafficLogWriter(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates a {@link TrafficLogWriter}.
+     *
+     * @param directory The directory in which to create the segment files. Created if it does not exist. Segment
+     *            numbering continues after any segments already in the directory.
+     * @param segmentSize The size in bytes of each segment file. Records larger than a segment are dropped.
+     *
+     * @throws IOException Thrown if the first segment cannot be created.
+     */
+    public TrafficLogWriter(File directory, int segmentSize) throws IOException {
+        if (segmentSize <= TrafficLogCodec.SEGMENT_HEADER_SIZE + TrafficLogCodec.FRAME_HEADER_SIZE) {
+            throw new IllegalArgumentException("segmentSize too small: " + segmentSize);
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create traffic log directory " + directory);
+        }
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.nextSegmentIndex = getNextSegmentIndex(directory);
+        try {
+            this.currentSegment = openSegment();
+        } catch (IOException ioe) {
+            segmentCloser.shutdown();
+            throw ioe;
+        }
+    }
+
+    /**
+     * Appends the specified {@link TrafficRecord} to the log. Records that cannot be written are counted as dropped
+     * rather than failing the caller.
+     *
+     * @param record The {@link TrafficRecord} to append.
+     */
+    public void append(TrafficRecord record) {
+        TrafficLogCodec.EncodingBuffer encodingBuffer = encodingBuffers.get();
+        if (null == encodingBuffer) {
+            encodingBuffer = new TrafficLogCodec.EncodingBuffer();
+            encodingBuffers.set(encodingBuffer);
+        }
+
+        TrafficLogCodec.encode(record, encodingBuffer);
+
+        int payloadLength = encodingBuffer.getLength();
+        int frameLength = TrafficLogCodec.FRAME_HEADER_SIZE + payloadLength;
+
+        if (frameLength > segmentSize - TrafficLogCodec.SEGMENT_HEADER_SIZE) {
+            droppedCount.increment();
+            log.warn("append: Dropping record of " + payloadLength + " bytes larger than segment size " + segmentSize);
+            return;
+        }
+
+        try {
+            while (!closed) {
+                Segment segment = currentSegment;
+
+                int start = segment.reserve(frameLength);
+                if (start >= 0) {
+                    segment.write(start, encodingBuffer.getBytes(), payloadLength);
+                    recordedCount.increment();
+                    return;
+                }
+
+                roll(segment);
+            }
+        } catch (IOException ioe) {
+            log.error("append: Error rolling over traffic log segment", ioe);
+        }
+
+        droppedCount.increment();
+    }
+
+    public long getRecordedCount() {
+        return recordedCount.sum();
+    }
+
+    /**
+     * Gets the number of records that were not written because they were too large, the writer was closed or a new
+     * segment could not be created.
+     *
+     * @return Returns the number of records dropped.
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Closes the writer, flushing the current segment and waiting for full segments still being flushed in the
+     * background.
+     *
+     * @throws IOException Thrown if the current segment cannot be flushed and closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        segmentCloser.shutdown();
+        try {
+            currentSegment.close();
+        } finally {
+            try {
+                if (!segmentCloser.awaitTermination(1L, TimeUnit.MINUTES)) {
+                    log.warn("close: Timed out waiting for traffic log segments to be flushed");
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private synchronized void roll(final Segment fullSegment) throws IOException {
+        if (closed || (currentSegment != fullSegment)) {
+            return;
+        }
+
+        currentSegment = openSegment();
+
+        // Flushing a full segment can take a while and appends may run on I/O threads, so it is done in the
+        // background. Appends that reserved space before the roll finish writing before the segment is flushed.
+        segmentCloser.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    fullSegment.close();
+                } catch (IOException ioe) {
+                    log.error("run: Error closing traffic log segment", ioe);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the index following the highest numbered segment file in the specified directory, so that segments are
+     * never reused even if older segments have been deleted.
+     */
+    private static int getNextSegmentIndex(File directory) {
+        int nextSegmentIndex = 0;
+
+        for (File segmentFile : TrafficLogReader.listSegmentFiles(directory)) {
+            String fileName = segmentFile.getName();
+            String segmentNumber = fileName.substring(SEGMENT_FILE_PREFIX.length(),
+                    fileName.length() - SEGMENT_FILE_SUFFIX.length());
+            try {
+                nextSegmentIndex = Math.max(nextSegmentIndex, Integer.parseInt(segmentNumber) + 1);
+            } catch (NumberFormatException nfe) {
+                log.warn("getNextSegmentIndex: Ignoring unexpected segment file name " + fileName);
+            }
+        }
+
+        return nextSegmentIndex;
+    }
+
+    private Segment openSegment() throws IOException {
+        String fileName = String.format("%s%06d%s", SEGMENT_FILE_PREFIX, nextSegmentIndex++, SEGMENT_FILE_SUFFIX);
+        File segmentFile = new File(directory, fileName);
+
+        // Never map over an existing segment, such as one created by another writer on the same directory.
+        if (!segmentFile.createNewFile()) {
+            throw new IOException("Traffic log segment already exists: " + segmentFile);
+        }
+
+        log.debug("openSegment: Opening traffic log segment " + segmentFile);
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(segmentFile, "rw");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            MappedByteBuffer mappedBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            mappedBuffer.putInt(0, TrafficLogCodec.SEGMENT_MAGIC);
+            mappedBuffer.putInt(4, TrafficLogCodec.FORMAT_VERSION);
+            return new Segment(randomAccessFile, mappedBuffer);
+        } catch (IOException ioe) {
+            randomAccessFile.close();
+            throw ioe;
+        }
+    }
+
+    private static class Segment {
+        private final RandomAccessFile randomAccessFile;
+
+        private final MappedByteBuffer mappedBuffer;
+
+        private final AtomicInteger position = new AtomicInteger(TrafficLogCodec.SEGMENT_HEADER_SIZE);
+
+        private final AtomicInteger activeWriters = new AtomicInteger();
+
+        private volatile boolean sealed = false;
+
+        private Segment(RandomAccessFile randomAccessFile, MappedByteBuffer mappedBuffer) {
+            this.randomAccessFile = randomAccessFile;
+            this.mappedBuffer = mappedBuffer;
+        }
+
+        /**
+         * Reserves the specified number of bytes. A successful reservation must be followed by a call to
+         * {@link #write(int, byte[], int)}, which ends it.
+         *
+         * @return Returns the offset of the reserved bytes or -1 if the segment is sealed or does not have room for
+         *         them.
+         */
+        private int reserve(int frameLength) {
+            // Counted before checking the seal, so that close either sees this writer or this writer sees the seal.
+            activeWriters.incrementAndGet();
+
+            while (!sealed) {
+                int start = position.get();
+                if (start + frameLength > mappedBuffer.capacity()) {
+                    break;
+                }
+                if (position.compareAndSet(start, start + frameLength)) {
+                    return start;
+                }
+            }
+
+            activeWriters.decrementAndGet();
+
+            return -1;
+        }
+
+        private void write(int start, byte[] payload, int payloadLength) {
+            try {
+                ByteBuffer frame = mappedBuffer.duplicate();
+                frame.position(start + TrafficLogCodec.FRAME_HEADER_SIZE);
+                frame.put(payload, 0, payloadLength);
+
+                // The length goes in last so a reader never sees a frame whose payload is incomplete.
+                mappedBuffer.putInt(start, payloadLength);
+            } finally {
+                activeWriters.decrementAndGet();
+            }
+        }
+
+        /**
+         * Seals the segment against further reservations, waits for the writers holding one to finish and flushes
+         * the segment. A reader stops at the first frame without a length, so a frame still being written when the
+         * segment was flushed would hide every frame after it.
+         */
+        private void close() throws IOException {
+            sealed = true;
+
+            // Writers only copy an encoded record into the mapping, so the wait is short.
+            while (activeWriters.get() > 0) {
+                Thread.yield();
+            }
+
+            mappedBuffer.force();
+            randomAccessFile.close();
+        }
+    }
+
+}
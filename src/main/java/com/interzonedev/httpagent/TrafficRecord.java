@@ -0,0 +1,70 @@
+package com.interzonedev.httpagent;
+
+import com.interzonedev.httpcore.Request;
+import com.interzonedev.httpcore.Response;
+
+/**
+ * Immutable value object for one request captured by a {@link RecordingRequestService}: the {@link Request}, either
+ * the {@link Response} or a description of the failure, and the timing of the exchange.
+ */
+public final class TrafficRecord {
+
+    private final long startTimeMillis;
+
+    private final long durationNanos;
+
+    private final Request request;
+
+    private final Response response;
+
+    private final String errorMessage;
+
+    /**
+     * Creates a {@link TrafficRecord}.
+     *
+     * @param startTimeMillis The wall clock time in milliseconds at which the request was started.
+     * @param durationNanos The time in nanoseconds between starting the request and its completion.
+     * @param request The {@link Request} value object that was performed.
+     * @param response The {@link Response} value object received, or null if the request failed.
+     * @param errorMessage A description of the failure, or null if a {@link Response} was received.
+     */
+    public TrafficRecord(long startTimeMillis, long durationNanos, Request request, Response response,
+            String errorMessage) {
+        this.startTimeMillis = startTimeMillis;
+        this.durationNanos = durationNanos;
+        this.request = request;
+        this.response = response;
+        this.errorMessage = errorMessage;
+    }
+
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public Request getRequest() {
+        return request;
+    }
+
+    public Response getResponse() {
+        return response;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public boolean isFailed() {
+        return null == response;
+    }
+
+    @Override
+    public String toString() {
+        return "TrafficRecord [startTimeMillis=" + startTimeMillis + ", durationNanos=" + durationNanos
+                + ", request=" + request + ", response=" + response + ", errorMessage=" + errorMessage + "]";
+    }
+
+}
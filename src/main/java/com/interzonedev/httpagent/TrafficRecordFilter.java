@@ -0,0 +1,19 @@
+package com.interzonedev.httpagent;
+
+/**
+ * Interface for redacting or excluding the {@link TrafficRecord}s captured by a {@link RecordingRequestService} before
+ * they are written to the traffic log.
+ */
+public interface TrafficRecordFilter {
+
+    /**
+     * Filters the specified {@link TrafficRecord}.
+     *
+     * @param record The {@link TrafficRecord} captured for a request.
+     *
+     * @return Returns the {@link TrafficRecord} to write, which may be a redacted copy of the specified record, or null
+     *         if the request should not be recorded.
+     */
+    TrafficRecord filter(TrafficRecord record);
+
+}
@@ -0,0 +1,103 @@
+package com.interzonedev.httpagent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics gathered by a {@link TrafficReplayer} while re-issuing recorded requests.
+ */
+public class TrafficReplayResult {
+
+    private final LongAdder sentCount = new LongAdder();
+
+    private final LongAdder completedCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private final LongAdder statusMismatchCount = new LongAdder();
+
+    private final LongAdder totalLatencyNanos = new LongAdder();
+
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    private volatile long elapsedNanos;
+
+    void sent() {
+        sentCount.increment();
+    }
+
+    void completed(long latencyNanos, boolean statusMatched) {
+        completedCount.increment();
+        if (!statusMatched) {
+            statusMismatchCount.increment();
+        }
+        recordLatency(latencyNanos);
+    }
+
+    void failed(long latencyNanos) {
+        failedCount.increment();
+        recordLatency(latencyNanos);
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    private void recordLatency(long latencyNanos) {
+        totalLatencyNanos.add(latencyNanos);
+
+        long currentMax;
+        do {
+            currentMax = maxLatencyNanos.get();
+        } while ((latencyNanos > currentMax) && !maxLatencyNanos.compareAndSet(currentMax, latencyNanos));
+    }
+
+    public long getSentCount() {
+        return sentCount.sum();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * Gets the number of completed requests whose status differed from the recorded status, including requests that
+     * failed when recorded.
+     *
+     * @return Returns the number of completed requests whose status differed from the recorded status.
+     */
+    public long getStatusMismatchCount() {
+        return statusMismatchCount.sum();
+    }
+
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos.get();
+    }
+
+    public long getMeanLatencyNanos() {
+        long finished = getCompletedCount() + getFailedCount();
+        return (0 == finished) ? 0L : totalLatencyNanos.sum() / finished;
+    }
+
+    /**
+     * Gets the wall clock time the replay took, from sending the first request to the completion of the last.
+     *
+     * @return Returns the time in nanoseconds the replay took.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "TrafficReplayResult [sentCount=" + getSentCount() + ", completedCount=" + getCompletedCount()
+                + ", failedCount=" + getFailedCount() + ", statusMismatchCount=" + getStatusMismatchCount()
+                + ", meanLatencyNanos=" + getMeanLatencyNanos() + ", maxLatencyNanos=" + getMaxLatencyNanos()
+                + ", elapsedNanos=" + getElapsedNanos() + "]";
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.interzonedev.httpagent;
+
+import com.interzonedev.httpcore.HttpException;
+import com.interzonedev.httpcore.Request;
+import com.interzonedev.httpcore.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-issues the requests in a traffic log against a {@link RequestService}, preserving the recorded spacing between
+ * requests scaled by a speed factor. Requests are sent asynchronously from the calling thread, which only paces and
+ * dispatches, so the target {@link RequestService} determines how many requests are in flight.
+ */
+public class TrafficReplayer {
+
+    private static final Logger log = LoggerFactory.getLogger(TrafficReplayer.class);
+
+    private final RequestService requestService;
+
+    private final double speed;
+
+    private final String targetBaseUrl;
+
+    /**
+     * Creates a {@link TrafficReplayer}.
+     *
+     * @param requestService The {@link RequestService} that performs the replayed requests.
+     * @param speed The factor by which to speed up the recorded request rate: 1 replays at the original rate, 2 at
+     *            twice the original rate. Zero or less sends requests as fast as they can be dispatched.
+     * @param targetBaseUrl The scheme, host and port, such as http://localhost:8080, that replace those of the
+     *            recorded urls. May be null to send requests to the recorded hosts.
+     */
+    public TrafficReplayer(RequestService requestService, double speed, String targetBaseUrl) {
+        this.requestService = requestService;
+        this.speed = speed;
+        this.targetBaseUrl = (null == targetBaseUrl) ? null : targetBaseUrl.replaceAll("/+$", "");
+    }
+
+    /**
+     * Replays all records read from the specified {@link TrafficLogReader} and waits for the replayed requests to
+     * complete.
+     *
+     * @param trafficLogReader The {@link TrafficLogReader} from which to read the records to replay.
+     *
+     * @return Returns the {@link TrafficReplayResult} describing the replay.
+     *
+     * @throws IOException Thrown if the traffic log cannot be read.
+     * @throws InterruptedException Thrown if the calling thread is interrupted while pacing or waiting.
+     */
+    public TrafficReplayResult replay(TrafficLogReader trafficLogReader) throws IOException, InterruptedException {
+        final TrafficReplayResult result = new TrafficReplayResult();
+
+        final AtomicLong outstanding = new AtomicLong(1L);
+        final CountDownLatch finished = new CountDownLatch(1);
+
+        long replayStartNanos = System.nanoTime();
+        long firstRecordStartMillis = -1L;
+
+        TrafficRecord record;
+        while (null != (record = trafficLogReader.next())) {
+            if (firstRecordStartMillis < 0L) {
+                firstRecordStartMillis = record.getStartTimeMillis();
+            }
+
+            if (speed > 0) {
+                long offsetNanos = TimeUnit.MILLISECONDS.toNanos(record.getStartTimeMillis() - firstRecordStartMillis);
+                long dueNanos = replayStartNanos + (long) (offsetNanos / speed);
+                long waitNanos = dueNanos - System.nanoTime();
+                if (waitNanos > 0L) {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                }
+            }
+
+            final Request recordedRequest = record.getRequest();
+            final Response recordedResponse = record.getResponse();
+            final long sendNanos = System.nanoTime();
+
+            outstanding.incrementAndGet();
+            result.sent();
+
+            ResponseCallback responseCallback = new ResponseCallback() {
+                private final AtomicBoolean reported = new AtomicBoolean();
+
+                @Override
+                public void completed(Response response) {
+                    if (!reported.compareAndSet(false, true)) {
+                        return;
+                    }
+
+                    try {
+                        boolean statusMatched = (null != recordedResponse)
+                                && (recordedResponse.getStatus() == response.getStatus());
+                        result.completed(System.nanoTime() - sendNanos, statusMatched);
+                    } finally {
+                        if (0L == outstanding.decrementAndGet()) {
+                            finished.countDown();
+                        }
+                    }
+                }
+
+                @Override
+                public void failed(Throwable t) {
+                    if (!reported.compareAndSet(false, true)) {
+                        return;
+                    }
+
+                    try {
+                        log.debug("failed: Replayed request failed - " + recordedRequest, t);
+                        result.failed(System.nanoTime() - sendNanos);
+                    } finally {
+                        if (0L == outstanding.decrementAndGet()) {
+                            finished.countDown();
+                        }
+                    }
+                }
+            };
+
+            // A request that cannot be rewritten or sent counts as a failed replay so the wait below still ends.
+            try {
+                Request request = getReplayRequest(recordedRequest);
+                requestService.doRequest(request, null, responseCallback);
+            } catch (HttpException he) {
+                responseCallback.failed(he);
+            } catch (RuntimeException re) {
+                log.warn("replay: Error replaying request " + recordedRequest, re);
+                responseCallback.failed(re);
+            }
+        }
+
+        // Release the count held while dispatching.
+        if (0L == outstanding.decrementAndGet()) {
+            finished.countDown();
+        }
+
+        finished.await();
+
+        result.setElapsedNanos(System.nanoTime() - replayStartNanos);
+
+        log.info("replay: " + result);
+
+        return result;
+    }
+
+    private Request getReplayRequest(Request recordedRequest) {
+        if (null == targetBaseUrl) {
+            return recordedRequest;
+        }
+
+        URI recordedUri = URI.create(recordedRequest.getUrl());
+
+        StringBuilder url = new StringBuilder(targetBaseUrl);
+        if (null != recordedUri.getRawPath()) {
+            url.append(recordedUri.getRawPath());
+        }
+        if (null != recordedUri.getRawQuery()) {
+            url.append("?").append(recordedUri.getRawQuery());
+        }
+
+        return Request.newBuilder().setUrl(url.toString()).setMethod(recordedRequest.getMethod())
+                .setHeaders(recordedRequest.getHeaders()).setParameters(recordedRequest.getParameters()).build();
+    }
+
+}
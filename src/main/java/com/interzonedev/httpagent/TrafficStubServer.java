@@ -0,0 +1,237 @@
+package com.interzonedev.httpagent;
+
+import com.interzonedev.httpcore.Response;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP server that answers requests with the responses in a traffic log, so a {@link RequestService} can be load
+ * tested offline against realistic responses. Requests are matched on method and path; when several responses were
+ * recorded for the same method and path they are served in turn. Unmatched requests get a 404.
+ */
+public class TrafficStubServer {
+
+    private static final Logger log = LoggerFactory.getLogger(TrafficStubServer.class);
+
+    /**
+     * Recorded headers that describe the original transfer rather than the content and are recomputed on replay.
+     */
+    private static final Set<String> TRANSFER_HEADERS = new HashSet<String>(Arrays.asList("content-length",
+            "transfer-encoding", "content-encoding", "connection", "keep-alive"));
+
+    private final Map<String, RecordedResponses> recordedResponsesByKey = new HashMap<String, RecordedResponses>();
+
+    private final InetAddress bindAddress;
+
+    private final int port;
+
+    private final boolean simulateLatency;
+
+    private HttpServer httpServer;
+
+    private ExecutorService executorService;
+
+    /**
+     * Creates a {@link TrafficStubServer} that listens on the loopback address only and loads the successful responses
+     * from the specified {@link TrafficLogReader}.
+     *
+     * @param trafficLogReader The {@link TrafficLogReader} from which to load the recorded responses.
+     * @param port The port on which to listen, or zero for an ephemeral port.
+     * @param simulateLatency Whether to delay each response by the recorded duration of the request.
+     *
+     * @throws IOException Thrown if the traffic log cannot be read.
+     */
+    public TrafficStubServer(TrafficLogReader trafficLogReader, int port, boolean simulateLatency)
+            throws IOException {
+        this(trafficLogReader, InetAddress.getLoopbackAddress(), port, simulateLatency);
+    }
+
+    /**
+     * Creates a {@link TrafficStubServer} and loads the successful responses from the specified
+     * {@link TrafficLogReader}. Recorded responses can hold data from the recorded services, so listen on anything
+     * other than the loopback address with care.
+     *
+     * @param trafficLogReader The {@link TrafficLogReader} from which to load the recorded responses.
+     * @param bindAddress The local address on which to listen. May be null, in which case the server listens on all
+     *            addresses.
+     * @param port The port on which to listen, or zero for an ephemeral port.
+     * @param simulateLatency Whether to delay each response by the recorded duration of the request.
+     *
+     * @throws IOException Thrown if the traffic log cannot be read.
+     */
+    public TrafficStubServer(TrafficLogReader trafficLogReader, InetAddress bindAddress, int port,
+            boolean simulateLatency) throws IOException {
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.simulateLatency = simulateLatency;
+
+        TrafficRecord record;
+        while (null != (record = trafficLogReader.next())) {
+            if (record.isFailed()) {
+                continue;
+            }
+
+            URI uri = URI.create(record.getRequest().getUrl());
+            String key = getKey(record.getRequest().getMethod().name(), uri.getRawPath());
+
+            RecordedResponses recordedResponses = recordedResponsesByKey.get(key);
+            if (null == recordedResponses) {
+                recordedResponses = new RecordedResponses();
+                recordedResponsesByKey.put(key, recordedResponses);
+            }
+            recordedResponses.records.add(record);
+        }
+
+        log.info("TrafficStubServer: Loaded responses for " + recordedResponsesByKey.size() + " method and path pairs");
+    }
+
+    public synchronized void start() throws IOException {
+        executorService = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "httpagent-stub-server-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        httpServer = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        httpServer.setExecutor(executorService);
+        httpServer.createContext("/", new StubHandler());
+        httpServer.start();
+
+        log.info("start: Listening on " + httpServer.getAddress());
+    }
+
+    public synchronized void stop() {
+        if (null != httpServer) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+
+        if (null != executorService) {
+            executorService.shutdownNow();
+            executorService = null;
+        }
+    }
+
+    /**
+     * Gets the port on which the server listens.
+     *
+     * @return Returns the port on which the server listens, which is only known for an ephemeral port once started.
+     */
+    public synchronized int getPort() {
+        return (null == httpServer) ? port : httpServer.getAddress().getPort();
+    }
+
+    private static String getKey(String method, String path) {
+        return method.toUpperCase(Locale.ROOT) + " " + (((null == path) || path.isEmpty()) ? "/" : path);
+    }
+
+    private static class RecordedResponses {
+        private final List<TrafficRecord> records = new ArrayList<TrafficRecord>();
+
+        private final AtomicInteger nextIndex = new AtomicInteger();
+
+        private TrafficRecord next() {
+            return records.get((nextIndex.getAndIncrement() & Integer.MAX_VALUE) % records.size());
+        }
+    }
+
+    private class StubHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                String key = getKey(exchange.getRequestMethod(), exchange.getRequestURI().getRawPath());
+
+                RecordedResponses recordedResponses = recordedResponsesByKey.get(key);
+                if (null == recordedResponses) {
+                    log.debug("handle: No recorded response for " + key);
+                    byte[] body = ("No recorded response for " + key).getBytes(Charset.forName("UTF-8"));
+                    exchange.sendResponseHeaders(404, body.length);
+                    exchange.getResponseBody().write(body);
+                    return;
+                }
+
+                TrafficRecord record = recordedResponses.next();
+                Response response = record.getResponse();
+
+                if (simulateLatency) {
+                    TimeUnit.NANOSECONDS.sleep(record.getDurationNanos());
+                }
+
+                Headers responseHeaders = exchange.getResponseHeaders();
+                Map<String, List<String>> recordedHeaders = response.getHeaders();
+                if (null != recordedHeaders) {
+                    for (Map.Entry<String, List<String>> header : recordedHeaders.entrySet()) {
+                        if (!TRANSFER_HEADERS.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+                            responseHeaders.put(header.getKey(), new ArrayList<String>(header.getValue()));
+                        }
+                    }
+                }
+
+                String content = response.getContent();
+                byte[] body = (null == content) ? new byte[0] : content.getBytes(getCharset(response.getContentType()));
+
+                boolean noBody = (0 == body.length) || "HEAD".equalsIgnoreCase(exchange.getRequestMethod());
+                exchange.sendResponseHeaders(response.getStatus(), noBody ? -1 : body.length);
+                if (!noBody) {
+                    OutputStream responseBody = exchange.getResponseBody();
+                    responseBody.write(body);
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        }
+
+        /**
+         * Gets the charset declared in the specified content type, or ISO-8859-1 if none is declared.
+         */
+        private Charset getCharset(String contentType) {
+            if (null != contentType) {
+                for (String parameter : contentType.split(";")) {
+                    String trimmedParameter = parameter.trim();
+                    if (trimmedParameter.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+                        String charsetName = trimmedParameter.substring("charset=".length()).replace("\"", "");
+                        try {
+                            return Charset.forName(charsetName);
+                        } catch (IllegalArgumentException iae) {
+                            log.warn("getCharset: Unsupported charset " + charsetName);
+                        }
+                    }
+                }
+            }
+
+            return Charset.forName("ISO-8859-1");
+        }
+    }
+
+}